@@ -0,0 +1,237 @@
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.Timer;
+
+/**
+ * This class drives every animation of the canvas from a single Swing Timer.
+ * Each tick advances all active tweens and then updates the canvas once for everything
+ * they moved, instead of every animation running its own Timer and triggering its own
+ * updateVectors/updateShapes. The timer only runs while there are active tweens.
+ */
+class AnimationManager {
+    /**
+     * What a tween moves, and therefore what the canvas must update after it steps.
+     */
+    enum Target {
+        VECTORS, SHAPES, CAMERA
+    }
+
+    /**
+     * This interface defines a single step of an animation.
+     */
+    interface Step {
+        /**
+         * Applies the animation at a point of its progress.
+         * 
+         * @param t The eased progress, from 0 to 1, or the frame number for endless tweens.
+         */
+        void apply(double t);
+    }
+
+    /**
+     * This class represents a running animation.
+     */
+    static class Tween {
+        private final Target target;
+        private final int frames;
+        private final Easing easing;
+        private final Step step;
+        private final Runnable onDone;
+        private int curr = 0;
+        private boolean cancelled = false;
+
+        private Tween(Target target, int frames, Easing easing, Step step, Runnable onDone) {
+            this.target = target;
+            this.frames = frames;
+            this.easing = easing;
+            this.step = step;
+            this.onDone = onDone;
+        }
+
+        /**
+         * Stops the animation where it is, without running its completion callback.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Returns whether the animation is still running.
+         * 
+         * @return True if the animation has neither finished nor been cancelled.
+         */
+        boolean isRunning() {
+            return !cancelled && (frames == 0 || curr <= frames);
+        }
+
+        /**
+         * Applies the next frame of the animation.
+         * 
+         * @return True if this was the last frame.
+         */
+        private boolean advance() {
+            if (frames == 0) {
+                step.apply(curr++);
+                return false;
+            }
+            step.apply(easing.apply((double) curr / frames));
+            return curr++ == frames;
+        }
+    }
+
+    private final Demo canvas;
+    private final Timer timer;
+    private final List<Tween> tweens = new ArrayList<>();
+    // Whether tweens are being advanced, or finished by finishAll, so neither is re-entered
+    private boolean advancing, finishing;
+
+    /**
+     * Constructs an animation manager for the given canvas.
+     * 
+     * @param canvas The canvas to update after each tick.
+     * @param interval The time between two ticks in milliseconds.
+     */
+    AnimationManager(Demo canvas, int interval) {
+        this.canvas = canvas;
+        timer = new Timer(interval, e -> tick());
+    }
+
+    /**
+     * Starts an animation that runs over a fixed number of frames.
+     * 
+     * @param target What the animation moves.
+     * @param frames The number of frames after the first one.
+     * @param easing The easing curve applied to the progress.
+     * @param step The animation step.
+     * @param onDone Callback run after the last frame, or null.
+     * @return The running tween, which can be cancelled.
+     */
+    Tween start(Target target, int frames, Easing easing, Step step, Runnable onDone) {
+        Tween tween = new Tween(target, Math.max(frames, 1), easing, step, onDone);
+        tweens.add(tween);
+        timer.start();
+        return tween;
+    }
+
+    /**
+     * Starts an animation that runs until it is cancelled, such as the idle camera spin.
+     * 
+     * @param target What the animation moves.
+     * @param step The animation step, receiving the frame number.
+     * @return The running tween, which must be cancelled to stop it.
+     */
+    Tween loop(Target target, Step step) {
+        Tween tween = new Tween(target, 0, Easing.LINEAR, step, null);
+        tweens.add(tween);
+        timer.start();
+        return tween;
+    }
+
+    /**
+     * Jumps every finite animation to its last frame and runs its completion callback,
+     * so that their results are committed before the animated geometry is replaced.
+     * Endless animations are left where they are. Calls from the completion callbacks
+     * themselves return at once; animations they start are finished by the outer call.
+     */
+    void finishAll() {
+        if (finishing) {
+            return;
+        }
+        finishing = true;
+        try {
+            while (tweens.stream().anyMatch(tween -> tween.frames != 0 && !tween.cancelled)) {
+                advance(true);
+            }
+        } finally {
+            finishing = false;
+        }
+    }
+
+    /**
+     * Cancels every animation.
+     */
+    void cancelAll() {
+        tweens.forEach(Tween::cancel);
+        tweens.clear();
+        timer.stop();
+    }
+
+    /**
+     * Advances all active tweens by one frame and updates the canvas once for all of them.
+     */
+    private void tick() {
+        if (!advancing) {
+            advance(false);
+        }
+    }
+
+    /**
+     * Advances the tweens, updates the canvas once for all of them, and then runs the
+     * completion callbacks of those that finished, once the tweens are consistent again.
+     * 
+     * @param finish Whether to jump finite tweens to their last frame and skip endless ones,
+     *               instead of advancing every tween by one frame.
+     */
+    private void advance(boolean finish) {
+        boolean vectors = false, shapes = false, camera = false;
+        List<Runnable> done = new ArrayList<>();
+
+        advancing = true;
+        try {
+            for (int i = 0; i < tweens.size(); i++) {
+                Tween tween = tweens.get(i);
+                if (tween.cancelled) {
+                    tweens.remove(i--);
+                    continue;
+                }
+                if (finish) {
+                    if (tween.frames == 0) {
+                        continue;
+                    }
+                    tween.curr = tween.frames;
+                }
+                boolean last = tween.advance();
+                vectors |= tween.target == Target.VECTORS;
+                shapes |= tween.target == Target.SHAPES;
+                camera |= tween.target == Target.CAMERA;
+                if (last) {
+                    tweens.remove(i--);
+                    if (tween.onDone != null) {
+                        done.add(tween.onDone);
+                    }
+                }
+            }
+
+            // One batched geometry update, published as one snapshot, for everything that moved this frame
+            if (vectors || shapes || camera) {
+                canvas.update(vectors || camera, shapes || camera, camera);
+            }
+        } finally {
+            advancing = false;
+        }
+        done.forEach(Runnable::run);
+
+        if (tweens.isEmpty()) {
+            timer.stop();
+        }
+    }
+}
+
+/**
+ * This interface defines an easing curve, mapping linear progress to eased progress.
+ * Every curve maps 0 to 0 and 1 to 1.
+ */
+interface Easing {
+    Easing LINEAR = t -> t;
+    Easing EASE_IN = t -> t * t;
+    Easing EASE_OUT = t -> t * (2 - t);
+    Easing EASE_IN_OUT = t -> t * t * (3 - 2 * t);
+
+    /**
+     * Applies the curve.
+     * 
+     * @param t The linear progress, from 0 to 1.
+     * @return The eased progress.
+     */
+    double apply(double t);
+}
@@ -0,0 +1,190 @@
+import geoc.bench.Viewer;
+import geoc.bench.Workload;
+import java.util.Random;
+
+/**
+ * This class implements the benchmarked operations on the viewer's default-package classes.
+ * Inputs are random but seeded, so every run measures the same points.
+ */
+public class ViewerWorkloads implements Viewer {
+    // Vertices per shape in the shape benchmarks
+    private static final int SHAPE_SIZE = 1000;
+
+    private final Random random = new Random(42);
+
+    @Override
+    public Workload transform(String path, String op, int n) {
+        VertexBuffer src = points(n), dst = new VertexBuffer(n);
+        switch (path) {
+            case "utils": {
+                TransformFunction function = function(op);
+                double[] args = args(op);
+                V3[] vectors = src.toArray();
+                return () -> {
+                    V3[] result = new V3[vectors.length];
+                    for (int i = 0; i < vectors.length; i++) {
+                        result[i] = function.apply(vectors[i], args);
+                    }
+                    return result;
+                };
+            }
+            case "buffer": {
+                BufferTransform transform = transform(op);
+                double[] args = args(op);
+                double a = args[0], b = args.length > 1 ? args[1] : 0, c = args.length > 2 ? args[2] : 0;
+                return () -> {
+                    ParallelTransform.apply((s, d, from, to) -> transform.apply(s, d, from, to, a, b, c), src, dst);
+                    return dst;
+                };
+            }
+            case "matrix": {
+                Matrix4 matrix = Matrix4.of(function(op), args(op));
+                return () -> {
+                    ParallelTransform.apply(matrix::apply, src, dst);
+                    return dst;
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown transformation path " + path);
+        }
+    }
+
+    @Override
+    public Workload updateShapes(int n) {
+        Demo canvas = Demo.getInstance();
+        canvas.setShapes(shapes(n));
+        return () -> {
+            canvas.updateShapes();
+            return canvas;
+        };
+    }
+
+    @Override
+    public Workload moveCamera(int n) {
+        Demo canvas = Demo.getInstance();
+        canvas.setVectorBuffer(points(n));
+        canvas.setShapes(shapes(n));
+        double[] angle = { 0 };
+        return () -> {
+            angle[0] += 0.01;
+            canvas.setAngles(angle[0], angle[0] / 2);
+            canvas.update(true, true, true);
+            return canvas;
+        };
+    }
+
+    @Override
+    public Workload updateGridLines() {
+        Demo canvas = Demo.getInstance();
+        return () -> {
+            canvas.updateGridLines();
+            return canvas;
+        };
+    }
+
+    @Override
+    public Workload project(String kernels, int n) {
+        VertexKernels backend;
+        switch (kernels) {
+            case "scalar":
+                backend = new ScalarKernels();
+                break;
+            case "simd":
+                backend = new SimdKernels();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown kernels " + kernels);
+        }
+        // Rotated points in front of the camera, with the canvas' default projection
+        VertexBuffer rotated = new VertexBuffer(n);
+        Rotation.zx(0.4, 0.2).apply(points(n), rotated, 0, n);
+        int[] xs = new int[n], ys = new int[n];
+        return () -> {
+            backend.project(rotated, 0, n, 640, 360, 50, 200, 80, xs, ys);
+            return xs;
+        };
+    }
+
+    @Override
+    public Workload sphereMesh(int res) {
+        return () -> Shape.sphere(res);
+    }
+
+    @Override
+    public Workload sphereVectors() {
+        return Shape.SPHERE::getVectors;
+    }
+
+    @Override
+    public Workload tsp(int n, long budgetMillis) {
+        VertexBuffer points = points(n);
+        return () -> TspSolver.solve(points, budgetMillis);
+    }
+
+    /**
+     * Returns n points spread around the origin like a scene's, within the grid.
+     */
+    private VertexBuffer points(int n) {
+        VertexBuffer points = new VertexBuffer(n);
+        for (int i = 0; i < n; i++) {
+            points.set(i, random.nextGaussian() * 15, random.nextGaussian() * 15, random.nextGaussian() * 15);
+        }
+        return points;
+    }
+
+    /**
+     * Returns shapes of SHAPE_SIZE vertices, n vertices in total.
+     */
+    private V3[][] shapes(int n) {
+        V3[][] shapes = new V3[Math.max(n / SHAPE_SIZE, 1)][];
+        for (int i = 0; i < shapes.length; i++) {
+            shapes[i] = points(Math.min(n, SHAPE_SIZE)).toArray();
+        }
+        return shapes;
+    }
+
+    private static TransformFunction function(String op) {
+        switch (op) {
+            case "translate":
+                return Utils.translate;
+            case "scale":
+                return Utils.scale;
+            case "rotate":
+                return Utils.rotX;
+            case "shear":
+                return Utils.shearOnX;
+            default:
+                throw new IllegalArgumentException("Unknown transformation " + op);
+        }
+    }
+
+    private static BufferTransform transform(String op) {
+        switch (op) {
+            case "translate":
+                return BufferUtils.translate;
+            case "scale":
+                return BufferUtils.scale;
+            case "rotate":
+                return BufferUtils.rotX;
+            case "shear":
+                return BufferUtils.shearOnX;
+            default:
+                throw new IllegalArgumentException("Unknown transformation " + op);
+        }
+    }
+
+    private static double[] args(String op) {
+        switch (op) {
+            case "translate":
+                return new double[] { 1, 2, 3 };
+            case "scale":
+                return new double[] { 1.5 };
+            case "rotate":
+                return new double[] { 0.3 };
+            case "shear":
+                return new double[] { 0.2, 0.3 };
+            default:
+                throw new IllegalArgumentException("Unknown transformation " + op);
+        }
+    }
+}
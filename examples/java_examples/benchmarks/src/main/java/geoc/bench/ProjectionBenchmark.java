@@ -0,0 +1,44 @@
+package geoc.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the perspective projection of rotated vertices onto the screen, which
+ * every frame does for every shape, with the scalar kernels and with the SIMD kernels.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    int n;
+
+    @Param({ "scalar", "simd" })
+    String kernels;
+
+    private Workload project;
+
+    @Setup
+    public void setup() {
+        project = Viewer.load().project(kernels, n);
+    }
+
+    @Benchmark
+    public Object project() {
+        return project.run();
+    }
+}
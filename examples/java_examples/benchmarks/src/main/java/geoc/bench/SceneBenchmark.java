@@ -0,0 +1,88 @@
+package geoc.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the scene updates of the canvas, which rotate the scene into the
+ * camera's view and publish a snapshot for the next frame: the update after shapes change,
+ * the update of the grid, and the update of everything when the camera moves.
+ * The canvas is created headless and never painted.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SceneBenchmark {
+    /**
+     * This class holds a canvas with n shape vertices.
+     */
+    @State(Scope.Thread)
+    public static class Shapes {
+        @Param({ "1000", "100000", "1000000", "10000000" })
+        int n;
+
+        Workload updateShapes;
+
+        @Setup
+        public void setup() {
+            updateShapes = Viewer.load().updateShapes(n);
+        }
+    }
+
+    /**
+     * This class holds a canvas with n vectors and n shape vertices. It is separate from
+     * Shapes, so that only one large canvas is in memory at a time.
+     */
+    @State(Scope.Thread)
+    public static class Camera {
+        @Param({ "1000", "100000", "1000000", "10000000" })
+        int n;
+
+        Workload moveCamera;
+
+        @Setup
+        public void setup() {
+            moveCamera = Viewer.load().moveCamera(n);
+        }
+    }
+
+    /**
+     * This class holds an empty canvas.
+     */
+    @State(Scope.Thread)
+    public static class Grid {
+        Workload updateGridLines;
+
+        @Setup
+        public void setup() {
+            updateGridLines = Viewer.load().updateGridLines();
+        }
+    }
+
+    @Benchmark
+    public Object updateShapes(Shapes shapes) {
+        return shapes.updateShapes.run();
+    }
+
+    @Benchmark
+    public Object moveCamera(Camera camera) {
+        return camera.moveCamera.run();
+    }
+
+    @Benchmark
+    public Object updateGridLines(Grid grid) {
+        return grid.updateGridLines.run();
+    }
+}
@@ -0,0 +1,65 @@
+package geoc.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures sphere generation: building the welded mesh of a resolution, as an
+ * instance of a new resolution does, and unpacking the cached mesh into V3 objects, as
+ * getVectors does for the shape buttons.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SphereBenchmark {
+    /**
+     * This class holds the mesh generation of a resolution.
+     */
+    @State(Scope.Thread)
+    public static class Mesh {
+        @Param({ "12", "24", "48", "96", "192" })
+        int res;
+
+        Workload mesh;
+
+        @Setup
+        public void setup() {
+            mesh = Viewer.load().sphereMesh(res);
+        }
+    }
+
+    /**
+     * This class holds the unpacking of the cached sphere, whose resolution is fixed.
+     */
+    @State(Scope.Thread)
+    public static class Vectors {
+        Workload vectors;
+
+        @Setup
+        public void setup() {
+            vectors = Viewer.load().sphereVectors();
+        }
+    }
+
+    @Benchmark
+    public Object mesh(Mesh mesh) {
+        return mesh.mesh.run();
+    }
+
+    @Benchmark
+    public Object getVectors(Vectors vectors) {
+        return vectors.vectors.run();
+    }
+}
@@ -0,0 +1,59 @@
+package geoc.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the transformations the transformation buttons apply, through the
+ * three paths the viewer has: V3 objects transformed by Utils, one allocation per point,
+ * buffers transformed in place by BufferUtils, and buffers transformed by a fused Matrix4.
+ * The buffer paths run on the parallel transform pool, as the listeners run them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+    @Param({ "1000", "100000", "1000000", "10000000" })
+    int n;
+
+    @Param({ "translate", "scale", "rotate", "shear" })
+    String op;
+
+    private Workload utils, buffer, matrix;
+
+    @Setup
+    public void setup() {
+        Viewer viewer = Viewer.load();
+        utils = viewer.transform("utils", op, n);
+        buffer = viewer.transform("buffer", op, n);
+        matrix = viewer.transform("matrix", op, n);
+    }
+
+    @Benchmark
+    public Object utils() {
+        return utils.run();
+    }
+
+    @Benchmark
+    public Object buffer() {
+        return buffer.run();
+    }
+
+    @Benchmark
+    public Object matrix() {
+        return matrix.run();
+    }
+}
@@ -0,0 +1,45 @@
+package geoc.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class measures the tour search the TSA button runs: exact below 17 points, and a
+ * nearest neighbour tour improved for the budget above. A budget of 0 measures the
+ * construction alone; with a budget, the time is the budget plus the last improvement pass.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TspBenchmark {
+    @Param({ "12", "1000", "100000" })
+    int n;
+
+    @Param({ "0", "250" })
+    long budget;
+
+    private Workload tsp;
+
+    @Setup
+    public void setup() {
+        tsp = Viewer.load().tsp(n, budget);
+    }
+
+    @Benchmark
+    public Object solve() {
+        return tsp.run();
+    }
+}
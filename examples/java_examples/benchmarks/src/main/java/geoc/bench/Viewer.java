@@ -0,0 +1,90 @@
+package geoc.bench;
+
+/**
+ * This interface creates the benchmarked operations of the viewer. The viewer's classes are
+ * in the default package, which JMH benchmarks cannot be in and other packages cannot refer
+ * to, so the benchmarks reach them through ViewerWorkloads, a default-package class loaded
+ * once in each benchmark's setup. The operations it returns call the viewer directly.
+ */
+public interface Viewer {
+    /**
+     * Loads the default-package implementation.
+     * 
+     * @return The viewer's workloads.
+     */
+    static Viewer load() {
+        try {
+            return (Viewer) Class.forName("ViewerWorkloads").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("ViewerWorkloads is not on the class path", e);
+        }
+    }
+
+    /**
+     * Transforms n random points.
+     * 
+     * @param path "utils" for the V3 functions of Utils, "buffer" for the BufferUtils
+     *             functions animations apply every frame, or "matrix" for the fused Matrix4.
+     * @param op "translate", "scale", "rotate" or "shear".
+     * @param n The number of points.
+     * @return The transformation.
+     */
+    Workload transform(String path, String op, int n);
+
+    /**
+     * Rotates n shape vertices into the camera's view with Demo.updateShapes.
+     * 
+     * @param n The number of vertices, in shapes of a thousand.
+     * @return The update.
+     */
+    Workload updateShapes(int n);
+
+    /**
+     * Moves the camera and rotates n vectors, n shape vertices and the grid with Demo.update,
+     * as a mouse drag does. The vectors are a packed point cloud, as a loaded scene shows them.
+     * 
+     * @param n The number of vectors and of shape vertices.
+     * @return The update.
+     */
+    Workload moveCamera(int n);
+
+    /**
+     * Rotates the grid and axis lines with Demo.updateGridLines.
+     * 
+     * @return The update.
+     */
+    Workload updateGridLines();
+
+    /**
+     * Projects n rotated vertices onto the screen, as drawShapes does.
+     * 
+     * @param kernels "scalar" for ScalarKernels, or "simd" for SimdKernels.
+     * @param n The number of vertices.
+     * @return The projection.
+     */
+    Workload project(String kernels, int n);
+
+    /**
+     * Generates the welded sphere mesh of a resolution, without the mesh cache.
+     * 
+     * @param res The resolution.
+     * @return The generation.
+     */
+    Workload sphereMesh(int res);
+
+    /**
+     * Unpacks the cached sphere mesh into V3 objects with Shape.SPHERE.getVectors().
+     * 
+     * @return The unpacking.
+     */
+    Workload sphereVectors();
+
+    /**
+     * Finds a closed tour through n random points with TspSolver, as the TSA listener does.
+     * 
+     * @param n The number of points.
+     * @param budgetMillis The time the local search may take.
+     * @return The search.
+     */
+    Workload tsp(int n, long budgetMillis);
+}
@@ -0,0 +1,13 @@
+package geoc.bench;
+
+/**
+ * This interface is one benchmarked operation of the viewer, bound to its inputs.
+ */
+public interface Workload {
+    /**
+     * Runs the operation once.
+     * 
+     * @return A result of the operation, consumed by JMH so that it is not optimized away.
+     */
+    Object run();
+}
@@ -0,0 +1,98 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import javax.swing.SwingWorker;
+
+/**
+ * This class runs the long computations of the application off the event dispatch thread,
+ * so the canvas keeps painting and the buttons keep responding while they run.
+ * CPU-bound jobs, such as transforming large buffers, searching tours and generating meshes,
+ * run on a pool with one thread per processor. I/O-bound jobs, such as importing, opening and
+ * saving files, run on a separate pool whose threads mostly wait, so a slow disk never holds
+ * up the math. Jobs are SwingWorkers, which report progress, publish partial results and can
+ * be cancelled as usual; their results are handed to the canvas in done, on the event dispatch
+ * thread, where they are swapped in at once, between two frames.
+ */
+class ComputeExecutor {
+    private final Demo canvas;
+    private final ExecutorService cpu, io;
+
+    /**
+     * Constructs the executor and its pools, whose threads do not keep the application alive.
+     * 
+     * @param canvas The canvas failures are reported on.
+     */
+    ComputeExecutor(Demo canvas) {
+        this.canvas = canvas;
+        // Below the event dispatch thread's priority, so painting wins over a busy pool
+        cpu = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                threads("compute", Thread.NORM_PRIORITY - 1));
+        io = Executors.newCachedThreadPool(threads("io", Thread.NORM_PRIORITY));
+    }
+
+    /**
+     * Runs a CPU-bound job on the compute pool.
+     * 
+     * @param job The job, not yet started.
+     * @return The job, to cancel it or wait for it.
+     */
+    <W extends SwingWorker<?, ?>> W cpu(W job) {
+        cpu.execute(job);
+        return job;
+    }
+
+    /**
+     * Runs an I/O-bound job on the I/O pool.
+     * 
+     * @param job The job, not yet started.
+     * @return The job, to cancel it or wait for it.
+     */
+    <W extends SwingWorker<?, ?>> W io(W job) {
+        io.execute(job);
+        return job;
+    }
+
+    /**
+     * Computes a result on the compute pool and hands it over on the event dispatch thread.
+     * A failure is shown in the status line, and the result of a cancelled job is dropped.
+     * 
+     * @param name The name of the job in the status line.
+     * @param work The computation.
+     * @param publish Receives the result on the event dispatch thread.
+     * @return The job, to cancel it.
+     */
+    <T> SwingWorker<T, Void> cpu(String name, Callable<T> work, Consumer<T> publish) {
+        return cpu(new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return work.call();
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    publish.accept(get());
+                } catch (InterruptedException | ExecutionException e) {
+                    canvas.setStatus(name + " failed: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    private static ThreadFactory threads(String name, int priority) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+}
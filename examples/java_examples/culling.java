@@ -0,0 +1,348 @@
+import java.awt.Graphics;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * This class culls and clips geometry in camera space before the canvas draws it.
+ * The canvas projects a rotated point (x, y, z) to the screen at
+ * (cx + x * near / (y + far) * zoom, cy + z * near / (y + far) * zoom), so y + far is the depth
+ * of the point. Points closer than NEAR_CLIP are behind or too close to the camera, and
+ * projecting them gives mirrored or huge coordinates: segments are clipped at that depth,
+ * and shapes are classified by their bounds in camera space so that whole shapes behind
+ * the camera or outside the viewport are dropped without projecting or drawing them.
+ */
+class ViewClipper {
+    // Smallest depth that is projected
+    static final double NEAR_CLIP = 1;
+
+    /**
+     * How much of a buffer is visible.
+     */
+    enum Visibility {
+        // Nothing can be seen, behind the camera or outside the viewport
+        CULLED,
+        // Everything is in front of the near plane, so it can be projected as a whole
+        FRONT,
+        // The buffer crosses the near plane, its segments must be clipped
+        CLIPPED
+    }
+
+    private double cx, cy, near, far, zoom;
+    private int width, height;
+
+    /**
+     * Sets the projection of the canvas.
+     * 
+     * @param width The width of the viewport.
+     * @param height The height of the viewport.
+     * @param near The perspective scale.
+     * @param far The distance from the camera to the origin.
+     * @param zoom The zoom level.
+     */
+    void setView(int width, int height, double near, double far, double zoom) {
+        this.width = width;
+        this.height = height;
+        this.cx = width >> 1;
+        this.cy = height >> 1;
+        this.near = near;
+        this.far = far;
+        this.zoom = zoom;
+    }
+
+    /**
+     * Classifies a shape by its bounds, rotated into camera space.
+     * 
+     * @param bounds The world-space bounds of the shape, or null if it is empty.
+     * @param camera The camera rotation.
+     * @return Whether the shape is culled, entirely in front or crossing the near plane.
+     */
+    Visibility classify(Bounds bounds, Rotation camera) {
+        if (bounds == null) {
+            return Visibility.CULLED;
+        }
+        Bounds b = bounds.rotate(camera);
+        return classify(b.minX, b.minY, b.minZ, b.maxX, b.maxY, b.maxZ);
+    }
+
+    /**
+     * Classifies a camera-space bounding box.
+     * 
+     * @param minX The smallest x coordinate of the box.
+     * @param minY The smallest y coordinate of the box.
+     * @param minZ The smallest z coordinate of the box.
+     * @param maxX The largest x coordinate of the box.
+     * @param maxY The largest y coordinate of the box.
+     * @param maxZ The largest z coordinate of the box.
+     * @return Whether the box is culled, entirely in front or crossing the near plane.
+     */
+    Visibility classify(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        double minDepth = minY + far, maxDepth = maxY + far;
+        if (maxDepth < NEAR_CLIP) {
+            return Visibility.CULLED;
+        }
+        if (minDepth < NEAR_CLIP) {
+            return Visibility.CLIPPED;
+        }
+        // x / depth is monotonic in both, so the projected box is spanned by its corners
+        double left = Math.min(minX / minDepth, minX / maxDepth), right = Math.max(maxX / minDepth, maxX / maxDepth);
+        double top = Math.min(minZ / minDepth, minZ / maxDepth), bottom = Math.max(maxZ / minDepth, maxZ / maxDepth);
+        double scale = near * zoom;
+        if (cx + right * scale < 0 || cx + left * scale >= width || cy + bottom * scale < 0 || cy + top * scale >= height) {
+            return Visibility.CULLED;
+        }
+        return Visibility.FRONT;
+    }
+
+    /**
+     * Returns whether a rotated point is in front of the near plane and projects into the viewport.
+     * 
+     * @param x The rotated x coordinate.
+     * @param y The rotated y coordinate.
+     * @param z The rotated z coordinate.
+     * @return True if the point is visible.
+     */
+    boolean isVisible(double x, double y, double z) {
+        if (y + far < NEAR_CLIP) {
+            return false;
+        }
+        int sx = screenX(x, y), sy = screenY(z, y);
+        return sx >= 0 && sx < width && sy >= 0 && sy < height;
+    }
+
+    /**
+     * Projects the x coordinate of a rotated point in front of the near plane.
+     * 
+     * @param x The rotated x coordinate.
+     * @param y The rotated y coordinate.
+     * @return The screen x coordinate.
+     */
+    int screenX(double x, double y) {
+        return (int) (cx + (x * near / (y + far)) * zoom);
+    }
+
+    /**
+     * Projects the y coordinate of a rotated point in front of the near plane.
+     * 
+     * @param z The rotated z coordinate.
+     * @param y The rotated y coordinate.
+     * @return The screen y coordinate.
+     */
+    int screenY(double z, double y) {
+        return (int) (cy + (z * near / (y + far)) * zoom);
+    }
+
+    /**
+     * Draws a segment between two rotated points, clipped against the near plane.
+     * Segments entirely outside one side of the viewport are not drawn.
+     * 
+     * @param g The Graphics object to draw on.
+     * @param ax The rotated x coordinate of the first point.
+     * @param ay The rotated y coordinate of the first point.
+     * @param az The rotated z coordinate of the first point.
+     * @param bx The rotated x coordinate of the second point.
+     * @param by The rotated y coordinate of the second point.
+     * @param bz The rotated z coordinate of the second point.
+     * @return True if a line was drawn.
+     */
+    boolean segment(Graphics g, double ax, double ay, double az, double bx, double by, double bz) {
+        double da = ay + far, db = by + far;
+        if (da < NEAR_CLIP && db < NEAR_CLIP) {
+            return false;
+        }
+        // Move the point behind the near plane onto it
+        if (da < NEAR_CLIP) {
+            double t = (NEAR_CLIP - db) / (da - db);
+            ax = bx + (ax - bx) * t;
+            az = bz + (az - bz) * t;
+            ay = NEAR_CLIP - far;
+        } else if (db < NEAR_CLIP) {
+            double t = (NEAR_CLIP - da) / (db - da);
+            bx = ax + (bx - ax) * t;
+            bz = az + (bz - az) * t;
+            by = NEAR_CLIP - far;
+        }
+        int x1 = screenX(ax, ay), y1 = screenY(az, ay), x2 = screenX(bx, by), y2 = screenY(bz, by);
+        if ((x1 < 0 && x2 < 0) || (x1 >= width && x2 >= width) || (y1 < 0 && y2 < 0) || (y1 >= height && y2 >= height)) {
+            return false;
+        }
+        g.drawLine(x1, y1, x2, y2);
+        return true;
+    }
+
+    /**
+     * Draws the closed polygon through the points of a buffer, clipping every edge.
+     * 
+     * @param g The Graphics object to draw on.
+     * @param b The rotated points.
+     */
+    void polygon(Graphics g, VertexBuffer b) {
+        int n = b.size();
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            segment(g, b.x[j], b.y[j], b.z[j], b.x[i], b.y[i], b.z[i]);
+        }
+    }
+
+    /**
+     * Draws the edges of a mesh between the points of a buffer, clipping every edge.
+     * 
+     * @param g The Graphics object to draw on.
+     * @param b The rotated vertices of the mesh.
+     * @param edges The edges, as pairs of indexes into b.
+     */
+    void edges(Graphics g, VertexBuffer b, int[] edges) {
+        for (int k = 0; k < edges.length; k += 2) {
+            int i = edges[k], j = edges[k + 1];
+            segment(g, b.x[i], b.y[i], b.z[i], b.x[j], b.y[j], b.z[j]);
+        }
+    }
+}
+
+/**
+ * This class holds the bounding volumes of a shape: an axis-aligned bounding box and a
+ * bounding sphere. They are computed once from the shape's points, and then carried through
+ * affine transformations with the transformation's matrix instead of scanning the points again.
+ * A transformed box is the box around the transformed box, and a transformed sphere keeps its
+ * center and is scaled by the largest stretch of the matrix, so both stay conservative; each
+ * is also trimmed by the other after every transformation.
+ * The bounds of the V3 arrays shown as shapes are cached by identity in a weak map, so a shape
+ * keeps its bounds while it is listed in the GUI, without them being recomputed on selection.
+ */
+class Bounds {
+    private static final Map<V3[], Bounds> CACHE = new WeakHashMap<>();
+
+    final double minX, minY, minZ, maxX, maxY, maxZ;
+    final double cx, cy, cz, radius;
+
+    private Bounds(double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+            double cx, double cy, double cz, double radius) {
+        // The sphere bounds the box too, keep whichever is tighter on every axis
+        this.minX = Math.max(minX, cx - radius);
+        this.minY = Math.max(minY, cy - radius);
+        this.minZ = Math.max(minZ, cz - radius);
+        this.maxX = Math.min(maxX, cx + radius);
+        this.maxY = Math.min(maxY, cy + radius);
+        this.maxZ = Math.min(maxZ, cz + radius);
+        this.cx = cx;
+        this.cy = cy;
+        this.cz = cz;
+        this.radius = radius;
+    }
+
+    /**
+     * Computes the bounds of the points of a buffer. The sphere is centered on the box.
+     * 
+     * @param b The points.
+     * @return The bounds, or null if the buffer is empty.
+     */
+    static Bounds of(VertexBuffer b) {
+        int n = b.size();
+        if (n == 0) {
+            return null;
+        }
+        double minX = b.x[0], maxX = minX, minY = b.y[0], maxY = minY, minZ = b.z[0], maxZ = minZ;
+        for (int i = 1; i < n; i++) {
+            minX = Math.min(minX, b.x[i]);
+            maxX = Math.max(maxX, b.x[i]);
+            minY = Math.min(minY, b.y[i]);
+            maxY = Math.max(maxY, b.y[i]);
+            minZ = Math.min(minZ, b.z[i]);
+            maxZ = Math.max(maxZ, b.z[i]);
+        }
+        double cx = (minX + maxX) / 2, cy = (minY + maxY) / 2, cz = (minZ + maxZ) / 2, r2 = 0;
+        for (int i = 0; i < n; i++) {
+            double dx = b.x[i] - cx, dy = b.y[i] - cy, dz = b.z[i] - cz;
+            r2 = Math.max(r2, dx * dx + dy * dy + dz * dz);
+        }
+        return new Bounds(minX, minY, minZ, maxX, maxY, maxZ, cx, cy, cz, Math.sqrt(r2));
+    }
+
+    /**
+     * Returns the cached bounds of a shape, computing them on the first call.
+     * 
+     * @param shape The points of the shape.
+     * @return The bounds, or null if the shape is empty.
+     */
+    static Bounds of(V3[] shape) {
+        Bounds bounds = CACHE.get(shape);
+        if (bounds == null && shape.length > 0) {
+            bounds = of(VertexBuffer.of(shape));
+            CACHE.put(shape, bounds);
+        }
+        return bounds;
+    }
+
+    /**
+     * Replaces the cached bounds of a shape after its points have moved.
+     * 
+     * @param shape The points of the shape.
+     * @param bounds The new bounds.
+     */
+    static void update(V3[] shape, Bounds bounds) {
+        if (bounds != null) {
+            CACHE.put(shape, bounds);
+        }
+    }
+
+    /**
+     * Carries the bounds through an affine transformation.
+     * 
+     * @param m The transformation.
+     * @return The bounds of the transformed points.
+     */
+    Bounds transform(Matrix4 m) {
+        double[] a = m.m;
+        return transform(a[0], a[1], a[2], a[3], a[4], a[5], a[6], a[7], a[8], a[9], a[10], a[11]);
+    }
+
+    /**
+     * Carries the bounds through a rotation, such as the camera's.
+     * 
+     * @param r The rotation.
+     * @return The bounds of the rotated points.
+     */
+    Bounds rotate(Rotation r) {
+        return transform(r.m00, r.m01, r.m02, 0, r.m10, r.m11, r.m12, 0, r.m20, r.m21, r.m22, 0);
+    }
+
+    private Bounds transform(double m00, double m01, double m02, double tx,
+            double m10, double m11, double m12, double ty,
+            double m20, double m21, double m22, double tz) {
+        // Box: transform the center, and sum the absolute matrix entries times the half extents
+        double bx = (minX + maxX) / 2, by = (minY + maxY) / 2, bz = (minZ + maxZ) / 2;
+        double ex = (maxX - minX) / 2, ey = (maxY - minY) / 2, ez = (maxZ - minZ) / 2;
+        double nx = m00 * bx + m01 * by + m02 * bz + tx;
+        double ny = m10 * bx + m11 * by + m12 * bz + ty;
+        double nz = m20 * bx + m21 * by + m22 * bz + tz;
+        double hx = Math.abs(m00) * ex + Math.abs(m01) * ey + Math.abs(m02) * ez;
+        double hy = Math.abs(m10) * ex + Math.abs(m11) * ey + Math.abs(m12) * ez;
+        double hz = Math.abs(m20) * ex + Math.abs(m21) * ey + Math.abs(m22) * ez;
+
+        // Sphere: transform the center, and scale the radius by the largest singular value
+        double stretch = Math.sqrt(largestEigenvalue(
+                m00 * m00 + m10 * m10 + m20 * m20, m01 * m01 + m11 * m11 + m21 * m21, m02 * m02 + m12 * m12 + m22 * m22,
+                m00 * m01 + m10 * m11 + m20 * m21, m00 * m02 + m10 * m12 + m20 * m22, m01 * m02 + m11 * m12 + m21 * m22));
+        return new Bounds(nx - hx, ny - hy, nz - hz, nx + hx, ny + hy, nz + hz,
+                m00 * cx + m01 * cy + m02 * cz + tx,
+                m10 * cx + m11 * cy + m12 * cz + ty,
+                m20 * cx + m21 * cy + m22 * cz + tz,
+                radius * stretch);
+    }
+
+    /**
+     * Computes the largest eigenvalue of a symmetric 3x3 matrix in closed form.
+     */
+    private static double largestEigenvalue(double a00, double a11, double a22, double a01, double a02, double a12) {
+        double p1 = a01 * a01 + a02 * a02 + a12 * a12;
+        double q = (a00 + a11 + a22) / 3;
+        double p2 = (a00 - q) * (a00 - q) + (a11 - q) * (a11 - q) + (a22 - q) * (a22 - q) + 2 * p1;
+        if (p2 <= 0) {
+            return q;
+        }
+        double p = Math.sqrt(p2 / 6);
+        double b00 = (a00 - q) / p, b11 = (a11 - q) / p, b22 = (a22 - q) / p;
+        double b01 = a01 / p, b02 = a02 / p, b12 = a12 / p;
+        double det = b00 * (b11 * b22 - b12 * b12) - b01 * (b01 * b22 - b12 * b02) + b02 * (b01 * b12 - b11 * b02);
+        double phi = Math.acos(Math.max(-1, Math.min(1, det / 2))) / 3;
+        return Math.max(q + 2 * p * Math.cos(phi), 0);
+    }
+}
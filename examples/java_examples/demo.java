@@ -1,25 +1,58 @@
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 /**
  * This class represents the canvas where 3D objects and vectors are drawn.
  * It handles the rendering of 3D objects using perspective projection.
  * It also manages camera angles, zooming, and double buffering for smooth animation.
+ * Geometry is kept in packed VertexBuffers; the V3 arrays passed to setVectors and
+ * setShapes are only kept as the GUI's view of the same points.
+ * The scene is edited through the public fields and setters, and every update rotates it
+ * into a new SceneSnapshot, which is what paintComponent draws.
  */
 class Demo extends JComponent {
     // Fields for canvas size, zoom level, grid resolution, and perspective projection
     private int _i = 80, _H = 1, _W = 1, gridRes = 100; 
     private final double far = gridRes << 1, near = gridRes >> 1; 
 
-    // Arrays to store 3D vectors for objects, lines, and grid lines
-    public V3[] _vectors, vectors; // Original and rotated vectors
-    private V3[] _gridLines = new V3[gridRes << 2], gridLines = new V3[gridRes << 2]; // Original and rotated grid lines
-    private V3[] _lines, lines; // Original and rotated axis lines
-    public V3[][] _shapes, shapes; // Original and rotated shapes
+    // Vectors and shapes as handed in by the GUI
+    public V3[] _vectors;
+    public V3[][] _shapes;
 
-    // Camera angles for rotation
+    // Packed buffers to store 3D vertices for objects, lines, and grid lines
+    public VertexBuffer vectorData; // Original vectors
+    private final VertexBuffer _gridLines = new VertexBuffer(gridRes << 2); // Original grid lines
+    private final VertexBuffer _lines = new VertexBuffer(6); // Original axis lines
+    public VertexBuffer[] shapeData; // Original shapes
+    private Bounds[] shapeBounds; // Bounding volumes of shapeData, null for empty shapes
+    private Mesh[] shapeMeshes; // Mesh each entry of shapeData was created from, or null
+
+    // Instances of cached meshes as handed in by the GUI, drawn straight from their shared meshes
+    public Instance[] instances;
+
+    // Spatial index over vectorData and shapeData, following committed transformations
+    public final SceneIndex index = new SceneIndex();
+
+    // The published snapshot, and the one being drawn, whose buffers must not be rotated into
+    private volatile SceneSnapshot front = SceneSnapshot.EMPTY, drawing = SceneSnapshot.EMPTY;
+
+    // Back buffers the next snapshot is rotated into, two of each
+    private final VertexBuffer[] vectorBuffers = new VertexBuffer[2];
+    private final VertexBuffer[][] shapeBuffers = new VertexBuffer[2][];
+    private final VertexBuffer[] lineBuffers = new VertexBuffer[2], gridBuffers = new VertexBuffer[2];
+
+    // Camera angles for rotation, and the rotation compiled from them
     private double angleZ = 0, angleX = 0;
+    private Rotation camera = Rotation.zx(0, 0);
 
     // Singleton instance of Demo
     private static Demo instance; 
@@ -28,6 +61,45 @@ class Demo extends JComponent {
     private Graphics graphics; 
     private Image image;       
 
+    // Schedules a repaint whenever the frame is marked dirty
+    private final FrameScheduler scheduler = new FrameScheduler(this);
+
+    // Cached layer with the grid, axes and labels, the generation of the lines it shows, and whether it must be redrawn
+    private BufferedImage gridLayer;
+    private long layerLines = -1;
+    private boolean gridDirty = true;
+    // Generation of the rotated lines, counting every time they are rotated into a back buffer
+    private long lineGeneration;
+
+    // Colors of the axes and the grid, and the unit labels of the axes
+    private static final Color[] AXIS_COLORS = { new Color(255, 0, 22), new Color(155, 110, 44), new Color(55, 220, 88) };
+    private static final Color GRID_COLOR = new Color(90, 90, 90, 120);
+    private final String[] labels = new String[gridRes + 1];
+
+    // Screen coordinates of the last projected buffer, reused across shapes and frames
+    private int[] xs = new int[0], ys = new int[0];
+
+    // Screen-space grids over the vectors and shape vertices projected in the last frame
+    private final PickGrid vectorPicks = new PickGrid(), shapePicks = new PickGrid(), instancePicks = new PickGrid();
+
+    // Largest distance in pixels at which a click hits a projected point
+    private static final int PICK_RADIUS = 6;
+
+    // Culls and clips geometry against the near plane and the viewport of the current frame
+    private final ViewClipper clipper = new ViewClipper();
+
+    // Longest edge in pixels a sphere level of detail may draw before a finer level is used
+    private static final double LOD_SEGMENT = 4;
+
+    // Placed and rotated vertices of each mesh, reused across instances and frames
+    private final Map<Mesh, VertexBuffer> placed = new IdentityHashMap<>();
+
+    // Transformation of the instance being drawn followed by the camera's, reused across instances and frames
+    private final Matrix4 placement = new Matrix4(new double[16]);
+
+    // Status line drawn over the frame, such as the progress of a background solver
+    private volatile String status;
+
     /**
      * Returns the singleton instance of Demo.
      * 
@@ -46,35 +118,36 @@ class Demo extends JComponent {
         super();
         int j = gridRes >> 1;
 
+        // Initialize axis labels
+        for (int i = 0; i <= gridRes; i++) {
+            labels[i] = String.valueOf(j - i).intern();
+        }
+
         // Initialize grid lines
         for (int i = -j; (gridRes & 1) == 1 ? i <= j : i < j; i++) { 
-            gridLines[i + j << 2] = new V3(i, j, 0);
-            gridLines[(i + j << 2) + 1] = new V3(i, -j, 0);
-            gridLines[(i + j << 2) + 2] = new V3(j, i, 0);
-            gridLines[(i + j << 2) + 3] = new V3(-j, i, 0);
-            _gridLines[i + j << 2] = new V3(i, j, 0);
-            _gridLines[(i + j << 2) + 1] = new V3(i, -j, 0);
-            _gridLines[(i + j << 2) + 2] = new V3(j, i, 0);
-            _gridLines[(i + j << 2) + 3] = new V3(-j, i, 0);
+            _gridLines.set(i + j << 2, i, j, 0);
+            _gridLines.set((i + j << 2) + 1, i, -j, 0);
+            _gridLines.set((i + j << 2) + 2, j, i, 0);
+            _gridLines.set((i + j << 2) + 3, -j, i, 0);
         }
         
         // Initialize axis lines
-        lines = new V3[] {
-                new V3(j, 0, 0), new V3(-j, 0, 0), new V3(0, j, 0),
-                new V3(0, -j, 0), new V3(0, 0, j), new V3(0, 0, -j)
-        };
-        _lines = new V3[] {
-                new V3(j, 0, 0), new V3(-j, 0, 0), new V3(0, j, 0),
-                new V3(0, -j, 0), new V3(0, 0, j), new V3(0, 0, -j)
-        };
+        _lines.set(0, j, 0, 0);
+        _lines.set(1, -j, 0, 0);
+        _lines.set(2, 0, j, 0);
+        _lines.set(3, 0, -j, 0);
+        _lines.set(4, 0, 0, j);
+        _lines.set(5, 0, 0, -j);
+        update(true, true, true);
     }
 
     /**
      * Draws the entire frame, including lines, shapes, and vectors.
      * 
      * @param g The Graphics object to draw on.
+     * @param s The snapshot to draw.
      */
-    private void drawFrame(Graphics g) {
+    private void drawFrame(Graphics g, SceneSnapshot s) {
         // Create a new image for double buffering if necessary
         if (image == null || image.getWidth(null) != _W || image.getHeight(null) != _H) {
             image = createImage(_W, _H);
@@ -82,38 +155,173 @@ class Demo extends JComponent {
         }
         
         // Draw lines, shapes, and vectors on the buffered image
-        drawLines(graphics);
-        drawShapes(graphics);
-        drawVector(graphics);
+        clipper.setView(_W, _H, near, far, _i);
+        vectorPicks.clear(_W, _H);
+        shapePicks.clear(_W, _H);
+        instancePicks.clear(_W, _H);
+        drawLines(graphics, s);
+        drawShapes(graphics, s);
+        drawInstances(graphics, s);
+        drawVector(graphics, s);
+        drawStatus(graphics);
         
         // Draw the buffered image to the screen
         g.drawImage(image, 0, 0, null);
         graphics.clearRect(0, 0, _W, _H);
     }
 
+    /**
+     * Draws the status line in the top left corner, if there is one.
+     * 
+     * @param g The Graphics object to draw on.
+     */
+    private void drawStatus(Graphics g) {
+        String text = status;
+        if (text != null) {
+            g.setColor(Color.WHITE);
+            g.drawString(text, 10, 20);
+        }
+    }
+
     /**
      * Draws the 3D shapes on the canvas using perspective projection.
+     * Each shape is projected into the reusable screen buffers. Shapes created from a
+     * Shape are drawn along the edges of its mesh, other shapes, such as paths, as one
+     * closed polygon through their vertices.
      * 
      * @param g The Graphics object to draw on.
+     * @param s The snapshot to draw.
      */
-    private void drawShapes(Graphics g) {
+    private void drawShapes(Graphics g, SceneSnapshot s) {
+        VertexBuffer[] shapes = s.shapes;
         if (shapes != null) {
-            g.setColor(Color.PINK);
-            // Iterate through each shape
-            for (int i = 0; i < shapes.length; i++) {
-                int n = shapes[i].length;
-                int[][] points = new int[n][2];
-                // Project each vertex of the shape onto the 2D screen
-                for (int j = 0; j < n; j++) {
-                    points[j][0] = (int) ((_W >> 1) + (shapes[i][j].x * near / (shapes[i][j].y + far)) * _i);
-                    points[j][1] = (int) ((_H >> 1) + (shapes[i][j].z * near / (shapes[i][j].y + far)) * _i);
+            g.setColor(Color.YELLOW);
+            // Iterate through each shape, numbering their vertices like the SceneIndex
+            for (int i = 0, id = 0; i < shapes.length; id += shapes[i++].size()) {
+                int n = shapes[i].size();
+                Mesh mesh = s.shapeMeshes[i];
+                switch (clipper.classify(s.shapeBounds[i], s.camera)) {
+                    case FRONT:
+                        // Project each vertex of the shape onto the 2D screen
+                        project(shapes[i]);
+                        shapePicks.add(xs, ys, n, id);
+                        // Draw lines between projected vertices to form the shape
+                        if (mesh != null) {
+                            drawEdges(g, mesh.edges);
+                        } else {
+                            g.drawPolygon(xs, ys, n);
+                        }
+                        break;
+                    case CLIPPED:
+                        // Only the vertices in front of the near plane can be picked
+                        project(shapes[i]);
+                        hideBehind(shapes[i]);
+                        shapePicks.add(xs, ys, n, id);
+                        // Draw each edge clipped against the near plane
+                        if (mesh != null) {
+                            clipper.edges(g, shapes[i], mesh.edges);
+                        } else {
+                            clipper.polygon(g, shapes[i]);
+                        }
+                        break;
+                    default:
+                        // Behind the camera or outside the viewport
+                        break;
                 }
-                // Draw lines between projected vertices to form the shape
-                for (int j = 0; j < n - 1; j++) {
-                    g.setColor(Color.YELLOW);
-                    g.drawLine(points[j][0], points[j][1], points[j + 1][0], points[j + 1][1]);
+            }
+        }
+    }
+
+    /**
+     * Returns the mesh a shape was created from, whose edges index its vertices.
+     * 
+     * @param shape The points of the shape.
+     * @return The cached mesh, or null if the shape was not created from a Shape.
+     */
+    private static Mesh meshOf(V3[] shape) {
+        Shape kind = Shape.kindOf(shape);
+        if (kind == null) {
+            return null;
+        }
+        Mesh mesh = MeshCache.get(kind, kind.res);
+        return mesh.vertices.size() == shape.length ? mesh : null;
+    }
+
+    /**
+     * Draws the edges of a mesh between its projected vertices, each unique edge once.
+     * 
+     * @param g The Graphics object to draw on.
+     * @param edges The edges, as pairs of indexes into the projected vertices.
+     */
+    private void drawEdges(Graphics g, int[] edges) {
+        for (int k = 0; k < edges.length; k += 2) {
+            int a = edges[k], b = edges[k + 1];
+            g.drawLine(xs[a], ys[a], xs[b], ys[b]);
+        }
+    }
+
+    /**
+     * Chooses the level of detail of a sphere for the current frame: the coarsest
+     * level whose edges stay under LOD_SEGMENT pixels at its projected screen radius,
+     * which depends on the zoom level and on the depth of its center.
+     * 
+     * @param b The bounds of the sphere in the scene.
+     * @param camera The camera rotation of the frame.
+     * @return The index into Shape.SPHERE_LEVELS, 0 for full detail.
+     */
+    private int sphereLevel(Bounds b, Rotation camera) {
+        double depth = camera.m10 * b.cx + camera.m11 * b.cy + camera.m12 * b.cz + far;
+        double screenRadius = b.radius * near * _i / depth;
+        for (int level = Shape.SPHERE_LEVELS.length - 1; level > 0; level--) {
+            if (2 * Math.PI * screenRadius / Shape.SPHERE_LEVELS[level] <= LOD_SEGMENT) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Draws the instances on the canvas. Each visible instance is placed and rotated into
+     * camera space in one pass over its shared mesh's vertices, using a per-mesh scratch
+     * buffer, and drawn along the mesh's edges. Spheres use the cached mesh of their level of detail.
+     * 
+     * @param g The Graphics object to draw on.
+     * @param s The snapshot to draw.
+     */
+    private void drawInstances(Graphics g, SceneSnapshot s) {
+        Instance[] instances = s.instances;
+        if (instances == null || instances.length == 0) {
+            return;
+        }
+        g.setColor(Color.YELLOW);
+        Matrix4 view = s.camera.toMatrix();
+        for (int i = 0; i < instances.length; i++) {
+            Instance instance = instances[i];
+            // The transformation of the snapshot, not the one the instance may have moved to since
+            Matrix4 transform = s.transforms[i];
+            Bounds b = MeshCache.bounds(instance.mesh).transform(transform);
+            ViewClipper.Visibility visibility = clipper.classify(b, s.camera);
+            if (visibility == ViewClipper.Visibility.CULLED) {
+                continue;
+            }
+            Mesh mesh = instance.mesh;
+            if (instance.shape == Shape.SPHERE && visibility == ViewClipper.Visibility.FRONT) {
+                int res = Shape.SPHERE_LEVELS[sphereLevel(b, s.camera)];
+                if (res < instance.res) {
+                    mesh = MeshCache.get(Shape.SPHERE, res);
                 }
-                g.drawLine(points[n - 1][0], points[n - 1][1], points[0][0], points[0][1]);
+            }
+            VertexBuffer vertices = placed.computeIfAbsent(mesh, m -> new VertexBuffer(m.vertices.size()));
+            transform.then(view, placement).apply(mesh.vertices, vertices);
+            int n = vertices.size();
+            project(vertices);
+            if (visibility == ViewClipper.Visibility.FRONT) {
+                instancePicks.addGroup(xs, ys, n, i);
+                drawEdges(g, mesh.edges);
+            } else {
+                hideBehind(vertices);
+                instancePicks.addGroup(xs, ys, n, i);
+                clipper.edges(g, vertices, mesh.edges);
             }
         }
     }
@@ -122,70 +330,121 @@ class Demo extends JComponent {
      * Draws the 3D vectors on the canvas using perspective projection.
      * 
      * @param g The Graphics object to draw on.
+     * @param s The snapshot to draw.
      */
-    private void drawVector(Graphics g) {
-        if (_vectors != null) {
+    private void drawVector(Graphics g, SceneSnapshot s) {
+        VertexBuffer vectors = s.vectors;
+        if (vectors != null) {
             g.setColor(Color.PINK);
+            // Project the vectors onto the 2D screen
+            project(vectors);
+            hideBehind(vectors);
+            vectorPicks.add(xs, ys, vectors.size(), 0);
             // Iterate through each vector
-            for (int i = 0; i < _vectors.length; i++) {
-                // Project the vector onto the 2D screen
-                int px = (int) ((_W >> 1) + (vectors[i].x * near / (vectors[i].y + far)) * _i);
-                int py = (int) ((_H >> 1) + (vectors[i].z * near / (vectors[i].y + far)) * _i);
-                
-                // Draw the vector and its index label
-                g.drawString(i + "", px, py);
-                g.drawLine(_W >> 1, _H >> 1, px, py);
-                g.drawString(_vectors[i] + "", px - 10, py - 10);
+            for (int i = 0; i < vectors.size(); i++) {
+                if (vectors.y[i] + far < ViewClipper.NEAR_CLIP) {
+                    // Only the part of the vector in front of the near plane is drawn
+                    clipper.segment(g, 0, 0, 0, vectors.x[i], vectors.y[i], vectors.z[i]);
+                    continue;
+                }
+                // Draw the vector, and its labels if its end is on the screen
+                g.drawLine(_W >> 1, _H >> 1, xs[i], ys[i]);
+                if (xs[i] >= 0 && xs[i] < _W && ys[i] >= 0 && ys[i] < _H) {
+                    g.drawString(i + "", xs[i], ys[i]);
+                    g.drawString(s.vectorData.toString(i), xs[i] - 10, ys[i] - 10);
+                }
             }
         }
     }
 
     /**
      * Draws the grid lines and axis lines on the canvas.
+     * They are rendered into gridLayer, which is only redrawn when the snapshot's lines,
+     * the zoom level or the canvas size have changed since the last frame.
      * 
      * @param g The Graphics object to draw on.
+     * @param s The snapshot to draw.
      */
-    private void drawLines(Graphics g) {
-        int center_x = _W >> 1, center_y = _H >> 1;
+    private void drawLines(Graphics g, SceneSnapshot s) {
+        // Create a new layer if the canvas was resized
+        if (gridLayer == null || gridLayer.getWidth() != Math.max(_W, 1) || gridLayer.getHeight() != Math.max(_H, 1)) {
+            gridLayer = new BufferedImage(Math.max(_W, 1), Math.max(_H, 1), BufferedImage.TYPE_INT_RGB);
+            gridDirty = true;
+        }
+        // Keyed on the generation, since a reused back buffer may come back with new contents
+        if (gridDirty || layerLines != s.lineGeneration) {
+            Graphics layer = gridLayer.createGraphics();
+            layer.setFont(g.getFont());
+            renderLines(layer, s.lines, s.gridLines);
+            layer.dispose();
+            layerLines = s.lineGeneration;
+            gridDirty = false;
+        }
+        g.drawImage(gridLayer, 0, 0, null);
+    }
 
+    /**
+     * Renders the grid lines, axis lines and axis labels.
+     * 
+     * @param g The Graphics object to draw on.
+     * @param lines The rotated axis lines.
+     * @param gridLines The rotated grid lines.
+     */
+    private void renderLines(Graphics g, VertexBuffer lines, VertexBuffer gridLines) {
         // Clear the canvas with black color
         g.setColor(Color.BLACK);
         g.fillRect(0, 0, _W, _H);
         
         // Draw axis lines with perspective and labels
         for (int i = 0; i < 3; i++) {
-            g.setColor(new Color(255 - i * 100, i * 110, 22 << i));
-            g.drawLine(
-                    (int) (center_x + (lines[i << 1].x * near / (lines[i << 1].y + far)) * _i),
-                    (int) (center_y + (lines[i << 1].z * near / (lines[i << 1].y + far)) * _i),
-                    (int) (center_x + (lines[(i << 1) + 1].x * near / (lines[(i << 1) + 1].y + far)) * _i),
-                    (int) (center_y + (lines[(i << 1) + 1].z * near / (lines[(i << 1) + 1].y + far)) * _i));
+            int a = i << 1, b = a + 1;
+            g.setColor(AXIS_COLORS[i]);
+            clipper.segment(g, lines.x[a], lines.y[a], lines.z[a], lines.x[b], lines.y[b], lines.z[b]);
             
             // Draw unit labels on the axis lines
             for (int j = 0; j <= gridRes; j++) {
                 double factor = j / (double) (gridRes);
-                double interpX = lines[i << 1].x + factor * (lines[(i << 1) + 1].x - lines[i << 1].x);
-                double interpY = lines[i << 1].y + factor * (lines[(i << 1) + 1].y - lines[i << 1].y);
-                double interpZ = lines[i << 1].z + factor * (lines[(i << 1) + 1].z - lines[i << 1].z);
-                int screenX = (int) (center_x + (interpX * near / (interpY + far)) * _i);
-                int screenY = (int) (center_y + (interpZ * near / (interpY + far)) * _i);
-                g.drawString((gridRes >> 1) - j + "", screenX, screenY); 
+                double interpX = lines.x[a] + factor * (lines.x[b] - lines.x[a]);
+                double interpY = lines.y[a] + factor * (lines.y[b] - lines.y[a]);
+                double interpZ = lines.z[a] + factor * (lines.z[b] - lines.z[a]);
+                if (clipper.isVisible(interpX, interpY, interpZ)) {
+                    g.drawString(labels[j], clipper.screenX(interpX, interpY), clipper.screenY(interpZ, interpY));
+                }
             }
         }
         
         // Draw grid lines with perspective
-        g.setColor(new Color(90, 90, 90, 120));
-        for (int i = 0; i < gridRes; i++) {
-            g.drawLine(
-                    (int) (center_x + (gridLines[i << 2].x * near / (gridLines[i << 2].y + far)) * _i),
-                    (int) (center_y + (gridLines[i << 2].z * near / (gridLines[i << 2].y + far)) * _i),
-                    (int) (center_x + (gridLines[(i << 2) + 1].x * near / (gridLines[(i << 2) + 1].y + far)) * _i),
-                    (int) (center_y + (gridLines[(i << 2) + 1].z * near / (gridLines[(i << 2) + 1].y + far)) * _i));
-            g.drawLine(
-                    (int) (center_x + (gridLines[(i << 2) + 2].x * near / (gridLines[(i << 2) + 2].y + far)) * _i),
-                    (int) (center_y + (gridLines[(i << 2) + 2].z * near / (gridLines[(i << 2) + 2].y + far)) * _i),
-                    (int) (center_x + (gridLines[(i << 2) + 3].x * near / (gridLines[(i << 2) + 3].y + far)) * _i),
-                    (int) (center_y + (gridLines[(i << 2) + 3].z * near / (gridLines[(i << 2) + 3].y + far)) * _i));
+        g.setColor(GRID_COLOR);
+        for (int i = 0; i < gridRes << 2; i += 2) {
+            clipper.segment(g, gridLines.x[i], gridLines.y[i], gridLines.z[i], gridLines.x[i + 1], gridLines.y[i + 1], gridLines.z[i + 1]);
+        }
+    }
+
+    /**
+     * Projects a buffer of rotated vertices onto the screen with perspective projection,
+     * into xs and ys, which only grow when a larger buffer comes along.
+     * 
+     * @param src The rotated vertices.
+     */
+    private void project(VertexBuffer src) {
+        if (xs.length < src.size()) {
+            xs = new int[src.size()];
+            ys = new int[src.size()];
+        }
+        VertexKernels.INSTANCE.project(src, 0, src.size(), _W >> 1, _H >> 1, near, far, _i, xs, ys);
+    }
+
+    /**
+     * Moves the projections of vertices behind the near plane off the screen,
+     * after project has filled xs and ys for the same buffer.
+     * 
+     * @param src The rotated vertices.
+     */
+    private void hideBehind(VertexBuffer src) {
+        for (int i = 0; i < src.size(); i++) {
+            if (src.y[i] + far < ViewClipper.NEAR_CLIP) {
+                xs[i] = -1;
+            }
         }
     }
 
@@ -195,29 +454,134 @@ class Demo extends JComponent {
     public void updateSizeFields() {
         _W = getWidth();
         _H = getHeight();
+        gridDirty = true;
+        scheduler.markDirty();
     }
 
     /**
      * Updates the grid lines based on camera angles.
      */
     public void updateGridLines() {
-        // Rotate grid lines based on camera angles
-        for (int i = 0; i < 6; i++) {
-            lines[i] = Utils.rotZX.apply(_lines[i], angleZ, angleX);
+        update(false, false, true);
+    }
+
+    /**
+     * Rotates the vectors, shapes or lines by the camera rotation into back buffers, and
+     * publishes the next snapshot with them, sharing the parts that are not updated with the
+     * published snapshot. A camera that has changed since then rotates every part, so a
+     * snapshot never mixes two rotations. The instances are always taken as they are now.
+     * 
+     * @param vectors Whether to rotate the vectors.
+     * @param shapes Whether to rotate the shapes.
+     * @param lines Whether to rotate the axis and grid lines.
+     */
+    public void update(boolean vectors, boolean shapes, boolean lines) {
+        SceneSnapshot published = front, drawn = drawing;
+        Rotation rotation = camera;
+        boolean all = published.camera != rotation;
+
+        VertexBuffer rotatedVectors = published.vectors;
+        if (vectors || all) {
+            rotatedVectors = null;
+            if (vectorData != null) {
+                rotatedVectors = backBuffer(vectorBuffers, vectorData.size(), published.vectors, drawn.vectors);
+                ParallelTransform.apply(rotation::apply, vectorData, rotatedVectors);
+            }
+        }
+        VertexBuffer[] rotatedShapes = published.shapes;
+        if (shapes || all) {
+            rotatedShapes = null;
+            if (shapeData != null) {
+                rotatedShapes = backShapes(published.shapes, drawn.shapes);
+                ParallelTransform.apply(rotation::apply, shapeData, rotatedShapes);
+            }
+        }
+        VertexBuffer rotatedLines = published.lines, rotatedGrid = published.gridLines;
+        if (lines || all) {
+            rotatedLines = backBuffer(lineBuffers, _lines.size(), published.lines, drawn.lines);
+            rotatedGrid = backBuffer(gridBuffers, _gridLines.size(), published.gridLines, drawn.gridLines);
+            ParallelTransform.apply(rotation::apply, _lines, rotatedLines);
+            ParallelTransform.apply(rotation::apply, _gridLines, rotatedGrid);
+            lineGeneration++;
+        }
+        Matrix4[] transforms = null;
+        if (instances != null) {
+            transforms = new Matrix4[instances.length];
+            for (int i = 0; i < instances.length; i++) {
+                transforms[i] = instances[i].transform;
+            }
+        }
+        front = new SceneSnapshot(rotation, vectorData, rotatedVectors, rotatedShapes,
+                shapeBounds == null ? null : shapeBounds.clone(), shapeMeshes, instances, transforms,
+                rotatedLines, rotatedGrid, lineGeneration);
+        scheduler.markDirty();
+    }
+
+    /**
+     * Returns one of two back buffers that neither the published snapshot nor the one being
+     * drawn uses, reallocating it if its size does not match. If both are in use, because a
+     * frame is still drawing an older snapshot, a new buffer replaces the drawn one's, which
+     * keeps its own reference.
+     * 
+     * @param pair The two back buffers.
+     * @param size The number of vertices needed.
+     * @param published The buffer of the published snapshot.
+     * @param drawn The buffer of the snapshot being drawn.
+     * @return A buffer of size vertices that no snapshot is reading.
+     */
+    private static VertexBuffer backBuffer(VertexBuffer[] pair, int size, VertexBuffer published, VertexBuffer drawn) {
+        int k = pair[0] != published && pair[0] != drawn ? 0 : pair[1] != published && pair[1] != drawn ? 1
+                : pair[0] == published ? 1 : 0;
+        if (pair[k] == null || pair[k] == drawn || pair[k].size() != size) {
+            pair[k] = new VertexBuffer(size);
+        }
+        return pair[k];
+    }
+
+    /**
+     * Returns back buffers for the rotated shapes, chosen like backBuffer and reallocated
+     * one by one where a shape's size does not match.
+     * 
+     * @param published The buffers of the published snapshot.
+     * @param drawn The buffers of the snapshot being drawn.
+     * @return One buffer per shape that no snapshot is reading.
+     */
+    private VertexBuffer[] backShapes(VertexBuffer[] published, VertexBuffer[] drawn) {
+        VertexBuffer[][] pair = shapeBuffers;
+        int k = pair[0] != published && pair[0] != drawn ? 0 : pair[1] != published && pair[1] != drawn ? 1
+                : pair[0] == published ? 1 : 0;
+        if (pair[k] == null || pair[k] == drawn || pair[k].length != shapeData.length) {
+            pair[k] = new VertexBuffer[shapeData.length];
         }
-        for (int i = 0; i < gridRes << 1; i++) {
-            gridLines[i << 1] = Utils.rotZX.apply(_gridLines[i << 1], angleZ, angleX);
-            gridLines[(i << 1) + 1] = Utils.rotZX.apply(_gridLines[(i << 1) + 1], angleZ, angleX);
+        VertexBuffer[] shapes = pair[k];
+        for (int i = 0; i < shapeData.length; i++) {
+            if (shapes[i] == null || shapes[i].size() != shapeData[i].size()) {
+                shapes[i] = new VertexBuffer(shapeData[i].size());
+            }
         }
+        return shapes;
+    }
+
+    /**
+     * Sets both camera angles and recompiles the camera rotation once.
+     * 
+     * @param angleZ The rotation angle around the Z-axis.
+     * @param angleX The rotation angle around the X-axis.
+     */
+    public void setAngles(double angleZ, double angleX) {
+        this.angleZ = angleZ;
+        this.angleX = angleX;
+        camera = Rotation.zx(angleZ, angleX);
+        scheduler.markDirty();
     }
 
     // Setters for camera angles
     public void setAngleZ(double angleZ) {
-        this.angleZ = angleZ;
+        setAngles(angleZ, angleX);
     }
 
     public void setAngleX(double angleX) {
-        this.angleX = angleX;
+        setAngles(angleZ, angleX);
     }
 
     /**
@@ -227,63 +591,160 @@ class Demo extends JComponent {
      * @param y The y-coordinate of the mouse.
      */
     public void screenPositionToAngles(int x, int y) {
-        setAngleZ(x * 6.283185 / _W);
-        setAngleX(y * 6.283185 / _H);
-        updateGridLines();
-        updateShapes();
-        updateVectors();
+        setAngles(x * 6.283185 / _W, y * 6.283185 / _H);
+        update(true, true, true);
     }
 
     /**
      * Sets the vectors to be drawn on the canvas.
+     * The vectors are packed into vectorData, which transformations then work on.
      * 
      * @param vectors An array of V3 vectors.
      */
     public void setVectors(V3[] vectors) {
         _vectors = vectors;
+        vectorData = VertexBuffer.of(vectors);
+        index.setVectors(vectorData);
+        updateVectors();
+    }
+
+    /**
+     * Sets packed vectors to be drawn on the canvas, such as a point cloud loaded from a
+     * scene file, without V3 objects behind them. Transformations work on the buffer itself,
+     * and _vectors is null while they are shown.
+     * 
+     * @param vectors The packed vectors.
+     */
+    public void setVectorBuffer(VertexBuffer vectors) {
+        _vectors = null;
+        vectorData = vectors;
+        index.setVectors(vectorData);
+        updateVectors();
+    }
+
+    /**
+     * Sets packed vectors to be drawn on the canvas like setVectorBuffer, with an octree
+     * over them already built, such as in the background.
+     * 
+     * @param vectors The packed vectors.
+     * @param tree An octree over vectors, with indexes into it as ids.
+     */
+    public void setVectorBuffer(VertexBuffer vectors, Octree tree) {
+        _vectors = null;
+        vectorData = vectors;
+        index.setVectors(vectorData, tree);
         updateVectors();
     }
 
     /**
      * Sets the shapes to be drawn on the canvas.
+     * The shapes are packed into shapeData, which transformations then work on,
+     * and their cached bounds are collected into shapeBounds.
      * 
      * @param shapes An array of V3 arrays representing the shapes.
      */
     public void setShapes(V3[][] shapes) {
         _shapes = shapes;
+        shapeData = VertexBuffer.of(shapes);
+        shapeBounds = null;
+        shapeMeshes = null;
+        if (shapes != null) {
+            shapeBounds = new Bounds[shapes.length];
+            shapeMeshes = new Mesh[shapes.length];
+            for (int i = 0; i < shapes.length; i++) {
+                shapeBounds[i] = Bounds.of(shapes[i]);
+                shapeMeshes[i] = meshOf(shapes[i]);
+            }
+        }
+        index.setShapes(shapeData);
         updateShapes();
     }
 
     /**
-     * Updates the vectors based on camera angles.
+     * Sets the instances to be drawn on the canvas. Transformations change
+     * their matrices, their shared meshes are never modified.
+     * 
+     * @param instances The instances, or null.
      */
-    public void updateVectors() {
-        if (_vectors != null) {
-            vectors = new V3[_vectors.length];
-            if (vectors == null) {
-                vectors = new V3[_vectors.length];
+    public void setInstances(Instance[] instances) {
+        this.instances = instances;
+        update(false, false, false);
+    }
+
+    /**
+     * Writes a packed buffer back into the V3 objects it was created from,
+     * so the GUI sees the result of a transformation, and moves its points in the index.
+     * 
+     * @param buffer vectorData or one of the shapeData buffers.
+     */
+    public void commit(VertexBuffer buffer) {
+        if (buffer == vectorData) {
+            if (_vectors != null) {
+                buffer.copyTo(_vectors);
             }
-            for (int i = 0; i < _vectors.length; i++) {
-                vectors[i] = Utils.rotZX.apply(_vectors[i], angleZ, angleX);
+        } else if (shapeData != null) {
+            for (int i = 0; i < shapeData.length; i++) {
+                if (shapeData[i] == buffer) {
+                    buffer.copyTo(_shapes[i]);
+                    Bounds.update(_shapes[i], shapeBounds[i]);
+                }
             }
         }
+        index.update(buffer);
     }
 
     /**
-     * Updates the shapes based on camera angles.
+     * Replaces a buffer with a transformed copy computed in the background, and writes it
+     * back into the V3 objects like commit. Called on the event dispatch thread, so every
+     * frame shows either the old or the new points, never a partly transformed buffer.
+     * 
+     * @param buffer vectorData or one of the shapeData buffers.
+     * @param result The transformed copy.
+     * @param tree An octree over result if buffer is vectorData, or null to move the points.
+     * @param bounds The bounds of result if buffer is a shape, used for culling from now on.
+     * @return False if the buffer is no longer shown, in which case nothing changes.
      */
-    public void updateShapes() {
-        if (_shapes != null) {
-            shapes = new V3[_shapes.length][];
-            for (int i = 0; i < _shapes.length; i++) {
-                if (shapes[i] == null) {
-                    shapes[i] = new V3[_shapes[i].length];
-                }
-                for (int j = 0; j < _shapes[i].length; j++) {
-                    shapes[i][j] = Utils.rotZX.apply(_shapes[i][j], angleZ, angleX);
-                }
+    public boolean replace(VertexBuffer buffer, VertexBuffer result, Octree tree, Bounds bounds) {
+        if (buffer == vectorData) {
+            vectorData = result;
+            if (_vectors != null) {
+                result.copyTo(_vectors);
+            }
+            if (tree != null) {
+                index.setVectors(result, tree);
+            } else {
+                index.setVectors(result);
             }
+            updateVectors();
+            return true;
         }
+        for (int i = 0; shapeData != null && i < shapeData.length; i++) {
+            if (shapeData[i] == buffer) {
+                shapeData[i] = result;
+                shapeBounds[i] = bounds;
+                commit(result);
+                updateShapes();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the vectors based on camera angles.
+     * The back buffers are only reallocated when the number of vectors changes.
+     */
+    public void updateVectors() {
+        update(true, false, false);
+    }
+
+    /**
+     * Updates the shapes based on camera angles.
+     * The back buffers are only reallocated when the shapes change size,
+     * and large scenes are rotated in parallel.
+     */
+    public void updateShapes() {
+        update(false, true, false);
     }
 
     /**
@@ -293,6 +754,91 @@ class Demo extends JComponent {
      */
     public void incrementI(int amount) {
         _i += amount;
+        gridDirty = true;
+        scheduler.markDirty();
+    }
+
+    /**
+     * Returns the bounds of a shape buffer.
+     * 
+     * @param buffer One of the shapeData buffers.
+     * @return The bounds of the shape, or null if the buffer is not a non-empty shape.
+     */
+    public Bounds boundsOf(VertexBuffer buffer) {
+        for (int i = 0; shapeData != null && i < shapeData.length; i++) {
+            if (shapeData[i] == buffer) {
+                return shapeBounds[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the bounds of a shape buffer after its points have been transformed,
+     * so that culling follows a running transformation without rescanning the points.
+     * 
+     * @param buffer One of the shapeData buffers.
+     * @param bounds The bounds of its transformed points.
+     */
+    public void setBounds(VertexBuffer buffer, Bounds bounds) {
+        for (int i = 0; shapeData != null && i < shapeData.length; i++) {
+            if (shapeData[i] == buffer) {
+                shapeBounds[i] = bounds;
+            }
+        }
+    }
+
+    /**
+     * Finds the vector drawn closest to a screen position in the last frame.
+     * 
+     * @param x The screen x coordinate.
+     * @param y The screen y coordinate.
+     * @return The index of the vector in _vectors, or -1 if no vector is drawn there.
+     */
+    public int pickVector(int x, int y) {
+        return vectorPicks.pick(x, y, PICK_RADIUS);
+    }
+
+    /**
+     * Finds the shape with a vertex drawn closest to a screen position in the last frame.
+     * 
+     * @param x The screen x coordinate.
+     * @param y The screen y coordinate.
+     * @return The index of the shape in _shapes, or -1 if no shape vertex is drawn there.
+     */
+    public int pickShape(int x, int y) {
+        int id = shapePicks.pick(x, y, PICK_RADIUS);
+        return id < 0 ? -1 : index.shapeOf(id);
+    }
+
+    /**
+     * Finds the instance with a vertex drawn closest to a screen position in the last frame.
+     * 
+     * @param x The screen x coordinate.
+     * @param y The screen y coordinate.
+     * @return The index of the instance in instances, or -1 if no instance is drawn there.
+     */
+    public int pickInstance(int x, int y) {
+        return instancePicks.pick(x, y, PICK_RADIUS);
+    }
+
+    /**
+     * Sets the status line drawn over the frame. May be called from any thread.
+     * 
+     * @param status The text to show, or null to hide the status line.
+     */
+    public void setStatus(String status) {
+        this.status = status;
+        scheduler.markDirty();
+    }
+
+    /**
+     * Returns the scheduler that repaints the canvas when its frame is dirty.
+     * 
+     * @return The canvas' FrameScheduler.
+     */
+    public FrameScheduler getScheduler() {
+        return scheduler;
     }
 
     /**
@@ -303,7 +849,103 @@ class Demo extends JComponent {
     @Override
     public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        drawFrame(g);
+        // Take the published snapshot, and announce it before it can be replaced and its buffers reused
+        SceneSnapshot s;
+        do {
+            s = front;
+            drawing = s;
+        } while (s != front);
+        try {
+            drawFrame(g, s);
+        } finally {
+            drawing = SceneSnapshot.EMPTY;
+        }
+    }
+}
+
+
+/**
+ * This class repaints a component only when its frame has been marked dirty, instead of at a fixed rate.
+ * Camera changes, geometry updates and animation ticks mark the frame dirty; all marks made
+ * before the next frame is painted are coalesced into a single repaint, which is delayed as
+ * needed to respect the optional frame-rate cap.
+ */
+class FrameScheduler {
+    private final JComponent component;
+    // Single-shot timer firing the next frame on the event dispatch thread
+    private final Timer timer;
+    // Minimum time between two frames in nanoseconds, 0 when uncapped
+    private long minInterval;
+    private long lastFrame;
+    // Latest coalesced update to run before the next frame
+    private Runnable pendingUpdate;
+    // Whether a frame is scheduled; cleared only after its update, whose changes it repaints
+    private boolean dirty;
+
+    /**
+     * Constructs an uncapped scheduler for the given component.
+     * 
+     * @param component The component to repaint.
+     */
+    FrameScheduler(JComponent component) {
+        this.component = component;
+        timer = new Timer(0, e -> frame());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Caps the frame rate.
+     * 
+     * @param fps The maximum number of frames per second, or 0 for no cap.
+     */
+    public void setMaxFps(int fps) {
+        minInterval = fps > 0 ? 1_000_000_000L / fps : 0;
+    }
+
+    /**
+     * Marks the frame dirty, scheduling a repaint unless one is already pending.
+     * May be called from any thread.
+     */
+    public void markDirty() {
+        if (!SwingUtilities.isEventDispatchThread()) {
+            SwingUtilities.invokeLater(this::markDirty);
+            return;
+        }
+        if (!dirty) {
+            dirty = true;
+            long wait = lastFrame + minInterval - System.nanoTime();
+            timer.setInitialDelay((int) Math.max(0, wait / 1_000_000));
+            timer.start();
+        }
+    }
+
+    /**
+     * Runs an update right before the next frame, replacing any update still pending,
+     * so a burst of events (like mouse drags) only does the work of the last one.
+     * Must be called on the event dispatch thread.
+     * 
+     * @param update The update to run before the next frame.
+     */
+    public void coalesce(Runnable update) {
+        pendingUpdate = update;
+        markDirty();
+    }
+
+    /**
+     * Runs the pending update and repaints the component.
+     */
+    private void frame() {
+        Runnable update = pendingUpdate;
+        pendingUpdate = null;
+        try {
+            if (update != null) {
+                update.run();
+            }
+        } finally {
+            dirty = false;
+        }
+        lastFrame = System.nanoTime();
+        component.repaint();
     }
 }
 
@@ -317,13 +959,22 @@ enum Shape {
    
     CUBE {
        @Override
-       public V3[] getVectors() {
-           // Define the vertices of the cube
-           V3[] vectors = {
-                 new V3(-1, 1, 1), new V3(-1, 1, -1), new V3(1, 1, -1), new V3(1, 1, 1),
-                 new V3(1, -1, 1), new V3(1, -1, -1), new V3(-1, -1, -1), new V3(-1, -1, 1)
-           };
-           return vectors;
+       public Mesh getMesh() {
+           // Define the vertices of the cube, the top face (y = 1) then the bottom face
+           VertexBuffer vertices = pack(
+                 -1, 1, 1, -1, 1, -1, 1, 1, -1, 1, 1, 1,
+                 1, -1, 1, 1, -1, -1, -1, -1, -1, -1, -1, 1);
+           // The edges of both faces, then the four edges between them
+           int[] edges = {
+                 0, 1, 1, 2, 2, 3, 3, 0,
+                 4, 5, 5, 6, 6, 7, 7, 4,
+                 0, 7, 1, 6, 2, 5, 3, 4 };
+           // Two triangles per face
+           int[] faces = {
+                 0, 1, 2, 0, 2, 3, 4, 5, 6, 4, 6, 7,
+                 0, 1, 6, 0, 6, 7, 2, 3, 4, 2, 4, 5,
+                 0, 3, 4, 0, 4, 7, 1, 2, 5, 1, 5, 6 };
+           return new Mesh(vertices, edges, faces);
        }
    },
    
@@ -332,36 +983,44 @@ enum Shape {
     */
    PYRAMID {
        @Override
-       public V3[] getVectors() {
-           // Define the vertices of the pyramid
-           V3[] vectors = {
-                 new V3(0, 0, 1), new V3(-1, 1, -1), new V3(1, 1, -1),
-                 new V3(1, -1, -1), new V3(-1, -1, -1)
-           };
-           return vectors;
+       public Mesh getMesh() {
+           // Define the vertices of the pyramid, the apex then the base
+           VertexBuffer vertices = pack(
+                 0, 0, 1, -1, 1, -1, 1, 1, -1,
+                 1, -1, -1, -1, -1, -1);
+           // The edges from the apex, then around the base
+           int[] edges = {
+                 0, 1, 0, 2, 0, 3, 0, 4,
+                 1, 2, 2, 3, 3, 4, 4, 1 };
+           // The four sides, then the base as two triangles
+           int[] faces = {
+                 0, 1, 2, 0, 2, 3, 0, 3, 4, 0, 4, 1,
+                 1, 2, 3, 1, 3, 4 };
+           return new Mesh(vertices, edges, faces);
        }
    },
    
    /**
     * Represents a sphere with a specified resolution (number of vertices).
+    * Its coarser levels of detail are the resolutions listed in SPHERE_LEVELS.
     */
    SPHERE(96) {
        @Override
-       public V3[] getVectors() {
-           // Create an array to store the sphere's vertices
-           V3[] vectors = new V3[res * res];
-           V3 aux = new V3(1, 0, 0);
-
-           // Generate sphere vertices using spherical coordinates
-           for (int i = 0; i < res; i++) {
-               aux = Utils.rotY.apply(aux, i * (2 * Math.PI / res));
-               for (int j = 0; j < res; j++) {
-                   vectors[i * res + j] = Utils.rotX.apply(aux, j * (2 * Math.PI / res));
-               }
-           }
-           return vectors;
+       public Mesh getMesh() {
+           return sphere(res);
+       }
+
+       @Override
+       public Mesh getMesh(int res) {
+           return sphere(res);
        }
    };
+   // Resolutions of the sphere's levels of detail, finest first
+   static final int[] SPHERE_LEVELS = { 96, 48, 24, 12 };
+
+   // Shape of every V3 array handed out by getVectors, by identity
+   private static final Map<V3[], Shape> KINDS = new WeakHashMap<>();
+
    // Resolution (number of vertices) for the sphere
    public int res;
    // Constructor for shapes with custom resolution
@@ -373,18 +1032,114 @@ enum Shape {
    Shape() {
    }
 
+   /**
+    * Packs a flat x, y, z coordinate list into a VertexBuffer.
+    * 
+    * @param coords The coordinates, three per vertex.
+    * @return The packed vertices.
+    */
+   private static VertexBuffer pack(double... coords) {
+       VertexBuffer buffer = new VertexBuffer(coords.length / 3);
+       for (int i = 0; i < buffer.size(); i++) {
+           buffer.set(i, coords[i * 3], coords[i * 3 + 1], coords[i * 3 + 2]);
+       }
+       return buffer;
+   }
 
    /**
-    * Abstract method to be implemented by each shape to return its vertices.
+    * Generates a sphere as a res x res grid of spherical coordinates, vertex i * res + j
+    * at longitude i and latitude j, both in steps of 2 * PI / res. The sines and cosines
+    * are computed once per step and shared by both angles. Each grid point is joined to
+    * its neighbours along both angles. The grid covers the sphere twice and meets itself
+    * at the poles, so it is welded into a mesh with every point and edge once; faces are
+    * made from the first cover only, splitting each of its grid cells into two triangles.
     * 
-    * @return An array of V3 vectors representing the vertices of the shape.
+    * @param res The resolution of the sphere, even.
+    * @return The welded mesh.
     */
-   public abstract V3[] getVectors();
-}
+   static Mesh sphere(int res) {
+       VertexBuffer vectors = new VertexBuffer(res * res);
+       double[] cos = new double[res], sin = new double[res];
+       for (int i = 0; i < res; i++) {
+           cos[i] = Math.cos(i * (2 * Math.PI / res));
+           sin[i] = Math.sin(i * (2 * Math.PI / res));
+       }
+       int[] edges = new int[res * res * 4], faces = new int[res / 2 * res * 6];
+       for (int i = 0; i < res; i++) {
+           for (int j = 0; j < res; j++) {
+               int v = i * res + j, nextI = (i + 1) % res * res + j, nextJ = i * res + (j + 1) % res;
+               int nextBoth = (i + 1) % res * res + (j + 1) % res;
+               vectors.set(v, cos[i], sin[i] * sin[j], sin[i] * cos[j]);
+               edges[v * 4] = v;
+               edges[v * 4 + 1] = nextJ;
+               edges[v * 4 + 2] = v;
+               edges[v * 4 + 3] = nextI;
+               if (i >= res / 2) {
+                   continue;
+               }
+               faces[v * 6] = v;
+               faces[v * 6 + 1] = nextI;
+               faces[v * 6 + 2] = nextBoth;
+               faces[v * 6 + 3] = v;
+               faces[v * 6 + 4] = nextBoth;
+               faces[v * 6 + 5] = nextJ;
+           }
+       }
+       return Mesh.weld(vectors, edges, faces);
+   }
 
-/**
- * This class provides utility functions for 3D transformations.
- * It defines several transformation functions as lambda expressions,
+   /**
+    * Returns the shape a V3 array was created as by getVectors.
+    * 
+    * @param vectors The V3 array.
+    * @return The shape, or null if the array was not created by getVectors.
+    */
+   static Shape kindOf(V3[] vectors) {
+       return vectors == null ? null : KINDS.get(vectors);
+   }
+
+   /**
+    * Abstract method to be implemented by each shape to return its indexed mesh.
+    * 
+    * @return A new Mesh holding the distinct vertices and the edges of the shape.
+    */
+   public abstract Mesh getMesh();
+
+   /**
+    * Returns the indexed mesh of the shape at a resolution.
+    * Shapes without a resolution ignore it.
+    * 
+    * @param res The resolution.
+    * @return A new Mesh holding the distinct vertices and the edges of the shape.
+    */
+   public Mesh getMesh(int res) {
+       return getMesh();
+   }
+
+   /**
+    * Returns the packed vertices of the shape, one per distinct point.
+    * 
+    * @return A VertexBuffer holding the vertices of the shape.
+    */
+   public VertexBuffer getBuffer() {
+       return getMesh().vertices;
+   }
+
+   /**
+    * Returns the vertices of the shape as V3 objects, for the GUI list.
+    * 
+    * @return An array of V3 vectors representing the vertices of the shape.
+    */
+   public V3[] getVectors() {
+       V3[] vectors = getBuffer().toArray();
+       KINDS.put(vectors, this);
+       return vectors;
+   }
+}
+
+/**
+ * This class provides utility functions for 3D transformations.
+ * It defines several transformation functions as lambda expressions,
  * each implementing the TransformFunction interface.
  */
 class Utils {
@@ -414,10 +1169,12 @@ class Utils {
            u.y * Math.cos(a[0]) - u.x * Math.sin(a[0]),
            u.z);
 
-   public static final TransformFunction rotZX = (u, a) -> new V3( 
-           u.x * Math.cos(a[0]) + u.y * Math.sin(a[0]),
-           (u.y * Math.cos(a[0]) - u.x * Math.sin(a[0])) * Math.cos(a[1]) + u.z * Math.sin(a[1]),
-           u.z * Math.cos(a[1]) - (u.y * Math.cos(a[0]) - u.x * Math.sin(a[0])) * Math.sin(a[1]));
+   public static final TransformFunction rotZX = (u, a) -> {
+       double cz = Math.cos(a[0]), sz = Math.sin(a[0]);
+       double cx = Math.cos(a[1]), sx = Math.sin(a[1]);
+       double ry = u.y * cz - u.x * sz;
+       return new V3(u.x * cz + u.y * sz, ry * cx + u.z * sx, u.z * cx - ry * sx);
+   };
 
    // Scaling function
    public static final TransformFunction scale = (u, f) -> new V3(
@@ -440,6 +1197,371 @@ class Utils {
            u.x + u.z * s[0], u.y + u.z * s[1], u.z);
 }
 
+/**
+ * This class provides the transformations of Utils as BufferTransforms,
+ * which write into a caller-supplied VertexBuffer instead of allocating a V3 per call.
+ * Parameters have the same meaning and order as in Utils; unused ones are ignored.
+ */
+class BufferUtils {
+   // Projection functions
+   public static final BufferTransform projXY = (src, dst, from, to, f, b, c) -> {
+       for (int i = from; i < to; i++) {
+           dst.set(i, src.x[i], src.y[i], src.z[i] * f);
+       }
+   };
+   public static final BufferTransform projXZ = (src, dst, from, to, f, b, c) -> {
+       for (int i = from; i < to; i++) {
+           dst.set(i, src.x[i], src.y[i] * f, src.z[i]);
+       }
+   };
+   public static final BufferTransform projYZ = (src, dst, from, to, f, b, c) -> {
+       for (int i = from; i < to; i++) {
+           dst.set(i, src.x[i] * f, src.y[i], src.z[i]);
+       }
+   };
+
+   // Reflection functions
+   public static final BufferTransform refX = projYZ;
+   public static final BufferTransform refY = projXZ;
+   public static final BufferTransform refZ = projXY;
+
+   // Rotation functions
+   public static final BufferTransform rotX = (src, dst, from, to, a, b, c) -> {
+       double cos = Math.cos(a), sin = Math.sin(a);
+       for (int i = from; i < to; i++) {
+           double y = src.y[i], z = src.z[i];
+           dst.set(i, src.x[i], y * cos + z * sin, z * cos - y * sin);
+       }
+   };
+
+   public static final BufferTransform rotY = (src, dst, from, to, a, b, c) -> {
+       double cos = Math.cos(a), sin = Math.sin(a);
+       for (int i = from; i < to; i++) {
+           double x = src.x[i], z = src.z[i];
+           dst.set(i, x * cos - z * sin, src.y[i], z * cos + x * sin);
+       }
+   };
+
+   public static final BufferTransform rotZ = (src, dst, from, to, a, b, c) -> {
+       double cos = Math.cos(a), sin = Math.sin(a);
+       for (int i = from; i < to; i++) {
+           double x = src.x[i], y = src.y[i];
+           dst.set(i, x * cos + y * sin, y * cos - x * sin, src.z[i]);
+       }
+   };
+
+   public static final BufferTransform rotZX = (src, dst, from, to, a, b, c) -> Rotation.zx(a, b).apply(src, dst, from, to);
+
+   // Scaling function
+   public static final BufferTransform scale = (src, dst, from, to, f, b, c) -> {
+       for (int i = from; i < to; i++) {
+           dst.set(i, src.x[i] * f, src.y[i] * f, src.z[i] * f);
+       }
+   };
+
+   // Translation function
+   public static final BufferTransform translate = (src, dst, from, to, dx, dy, dz) -> {
+       for (int i = from; i < to; i++) {
+           dst.set(i, src.x[i] + dx, src.y[i] + dy, src.z[i] + dz);
+       }
+   };
+
+   // Shearing functions
+   public static final BufferTransform shearOnX = (src, dst, from, to, s, t, c) -> {
+       for (int i = from; i < to; i++) {
+           double x = src.x[i];
+           dst.set(i, x, src.y[i] + x * s, src.z[i] + x * t);
+       }
+   };
+   public static final BufferTransform shearOnY = (src, dst, from, to, s, t, c) -> {
+       for (int i = from; i < to; i++) {
+           double y = src.y[i];
+           dst.set(i, src.x[i] + y * s, y, src.z[i] + y * t);
+       }
+   };
+   public static final BufferTransform shearOnZ = (src, dst, from, to, s, t, c) -> {
+       for (int i = from; i < to; i++) {
+           double z = src.z[i];
+           dst.set(i, src.x[i] + z * s, src.y[i] + z * t, z);
+       }
+   };
+}
+
+/**
+ * This class represents a rotation compiled into a 3x3 matrix, so that the
+ * trigonometry is evaluated once when it is built rather than once per vertex.
+ */
+class Rotation {
+    // Matrix entries, row by row
+    final double m00, m01, m02, m10, m11, m12, m20, m21, m22;
+
+    /**
+     * Constructs a rotation from the entries of its matrix.
+     */
+    Rotation(double m00, double m01, double m02,
+             double m10, double m11, double m12,
+             double m20, double m21, double m22) {
+        this.m00 = m00; this.m01 = m01; this.m02 = m02;
+        this.m10 = m10; this.m11 = m11; this.m12 = m12;
+        this.m20 = m20; this.m21 = m21; this.m22 = m22;
+    }
+
+    /**
+     * Builds the camera rotation applied by Utils.rotZX: a rotation around the
+     * Z-axis followed by a rotation around the X-axis.
+     * 
+     * @param angleZ The rotation angle around the Z-axis.
+     * @param angleX The rotation angle around the X-axis.
+     * @return The compiled rotation.
+     */
+    static Rotation zx(double angleZ, double angleX) {
+        double cz = Math.cos(angleZ), sz = Math.sin(angleZ);
+        double cx = Math.cos(angleX), sx = Math.sin(angleX);
+        return new Rotation(
+                cz, sz, 0,
+                -sz * cx, cz * cx, sx,
+                sz * sx, -cz * sx, cx);
+    }
+
+    /**
+     * Returns the rotation as an affine matrix, to be composed with other transformations.
+     * 
+     * @return The equivalent Matrix4.
+     */
+    Matrix4 toMatrix() {
+        return new Matrix4(
+                m00, m01, m02, 0,
+                m10, m11, m12, 0,
+                m20, m21, m22, 0,
+                0, 0, 0, 1);
+    }
+
+    /**
+     * Rotates a single vector.
+     * 
+     * @param u The vector to rotate.
+     * @return The rotated vector.
+     */
+    V3 apply(V3 u) {
+        return new V3(
+                m00 * u.x + m01 * u.y + m02 * u.z,
+                m10 * u.x + m11 * u.y + m12 * u.z,
+                m20 * u.x + m21 * u.y + m22 * u.z);
+    }
+
+    /**
+     * Rotates the vertices in [from, to) of src, writing them to dst. src and dst may be the same buffer.
+     * 
+     * @param src The buffer to read the vertices from.
+     * @param dst The buffer to write the rotated vertices to.
+     * @param from The index of the first vertex, inclusive.
+     * @param to The index of the last vertex, exclusive.
+     */
+    void apply(VertexBuffer src, VertexBuffer dst, int from, int to) {
+        VertexKernels.INSTANCE.rotate(this, src, dst, from, to);
+    }
+}
+
+/**
+ * This class represents an affine transformation as a 4x4 matrix.
+ * Every transformation in Utils and BufferUtils is affine and can be lowered to a Matrix4,
+ * and any chain of them composes into a single matrix applied in one pass over the vertices.
+ */
+class Matrix4 {
+    // Matrix entries, row-major; the last row is always 0, 0, 0, 1
+    final double[] m;
+
+    /**
+     * Constructs a matrix from its entries.
+     * 
+     * @param m The 16 entries of the matrix, row-major.
+     */
+    Matrix4(double... m) {
+        this.m = m;
+    }
+
+    /**
+     * Returns the identity matrix.
+     * 
+     * @return A matrix that leaves every vertex unchanged.
+     */
+    static Matrix4 identity() {
+        return new Matrix4(
+                1, 0, 0, 0,
+                0, 1, 0, 0,
+                0, 0, 1, 0,
+                0, 0, 0, 1);
+    }
+
+    /**
+     * Lowers a BufferTransform to a matrix by applying it to the origin and the unit vectors.
+     * 
+     * @param transform The affine transformation to lower.
+     * @param a The first transformation parameter.
+     * @param b The second transformation parameter.
+     * @param c The third transformation parameter.
+     * @return The matrix of the transformation.
+     */
+    static Matrix4 of(BufferTransform transform, double a, double b, double c) {
+        VertexBuffer basis = new VertexBuffer(4);
+        basis.set(1, 1, 0, 0);
+        basis.set(2, 0, 1, 0);
+        basis.set(3, 0, 0, 1);
+        transform.apply(basis, basis, a, b, c);
+        return fromBasis(basis);
+    }
+
+    /**
+     * Lowers a TransformFunction to a matrix by applying it to the origin and the unit vectors.
+     * 
+     * @param transform The affine transformation to lower.
+     * @param args The transformation parameters.
+     * @return The matrix of the transformation.
+     */
+    static Matrix4 of(TransformFunction transform, double... args) {
+        VertexBuffer basis = new VertexBuffer(4);
+        basis.set(0, transform.apply(new V3(0, 0, 0), args));
+        basis.set(1, transform.apply(new V3(1, 0, 0), args));
+        basis.set(2, transform.apply(new V3(0, 1, 0), args));
+        basis.set(3, transform.apply(new V3(0, 0, 1), args));
+        return fromBasis(basis);
+    }
+
+    /**
+     * Builds a matrix from the images of the origin (index 0) and the unit vectors (1 to 3).
+     */
+    private static Matrix4 fromBasis(VertexBuffer b) {
+        Matrix4 matrix = new Matrix4(new double[16]);
+        fromBasis(b, matrix.m);
+        return matrix;
+    }
+
+    /**
+     * Writes the entries of the matrix whose basis images are in b into m.
+     */
+    private static void fromBasis(VertexBuffer b, double[] m) {
+        double ox = b.x[0], oy = b.y[0], oz = b.z[0];
+        for (int j = 0; j < 3; j++) {
+            m[j] = b.x[j + 1] - ox;
+            m[4 + j] = b.y[j + 1] - oy;
+            m[8 + j] = b.z[j + 1] - oz;
+        }
+        m[3] = ox;
+        m[7] = oy;
+        m[11] = oz;
+        m[12] = 0;
+        m[13] = 0;
+        m[14] = 0;
+        m[15] = 1;
+    }
+
+    /**
+     * Lowers a chain of BufferTransforms into this matrix, overwriting its entries, without
+     * allocating. Only for a matrix its owner rebuilds every frame and never shares.
+     * 
+     * @param chain The transformations, in the order they are applied.
+     * @param args The parameters of the transformations, three per transformation.
+     * @param basis A buffer of 4 vertices to lower the chain in.
+     */
+    void lower(BufferTransform[] chain, double[] args, VertexBuffer basis) {
+        basis.set(0, 0, 0, 0);
+        basis.set(1, 1, 0, 0);
+        basis.set(2, 0, 1, 0);
+        basis.set(3, 0, 0, 1);
+        for (int i = 0; i < chain.length; i++) {
+            chain[i].apply(basis, basis, args[3 * i], args[3 * i + 1], args[3 * i + 2]);
+        }
+        fromBasis(basis, m);
+    }
+
+    /**
+     * Composes this transformation with another one applied after it.
+     * 
+     * @param next The transformation to apply after this one.
+     * @return A single matrix equivalent to applying this, then next.
+     */
+    Matrix4 then(Matrix4 next) {
+        return then(next, new Matrix4(new double[16]));
+    }
+
+    /**
+     * Composes this transformation with another one applied after it into a given matrix,
+     * overwriting its entries, without allocating. Only for a matrix its owner reuses and
+     * never shares.
+     * 
+     * @param next The transformation to apply after this one.
+     * @param into The matrix to write the result to; neither this nor next.
+     * @return into, equivalent to applying this, then next.
+     */
+    Matrix4 then(Matrix4 next, Matrix4 into) {
+        double[] a = next.m, b = m, r = into.m;
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                r[i << 2 | j] = a[i << 2] * b[j] + a[(i << 2) + 1] * b[4 + j]
+                        + a[(i << 2) + 2] * b[8 + j] + a[(i << 2) + 3] * b[12 + j];
+            }
+        }
+        return into;
+    }
+
+    /**
+     * Composes a chain of transformations into one matrix.
+     * 
+     * @param chain The transformations, in the order they are applied.
+     * @return A single matrix equivalent to the whole chain.
+     */
+    static Matrix4 compose(Matrix4... chain) {
+        Matrix4 result = identity();
+        for (Matrix4 next : chain) {
+            result = result.then(next);
+        }
+        return result;
+    }
+
+    /**
+     * Transforms a single vector.
+     * 
+     * @param u The vector to transform.
+     * @return The transformed vector.
+     */
+    V3 apply(V3 u) {
+        return new V3(
+                m[0] * u.x + m[1] * u.y + m[2] * u.z + m[3],
+                m[4] * u.x + m[5] * u.y + m[6] * u.z + m[7],
+                m[8] * u.x + m[9] * u.y + m[10] * u.z + m[11]);
+    }
+
+    /**
+     * Transforms the vertices in [from, to) of src, writing them to dst. src and dst may be the same buffer.
+     * 
+     * @param src The buffer to read the vertices from.
+     * @param dst The buffer to write the transformed vertices to.
+     * @param from The index of the first vertex, inclusive.
+     * @param to The index of the last vertex, exclusive.
+     */
+    void apply(VertexBuffer src, VertexBuffer dst, int from, int to) {
+        double m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+        double m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+        double m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+        for (int i = from; i < to; i++) {
+            double x = src.x[i], y = src.y[i], z = src.z[i];
+            dst.x[i] = m00 * x + m01 * y + m02 * z + m03;
+            dst.y[i] = m10 * x + m11 * y + m12 * z + m13;
+            dst.z[i] = m20 * x + m21 * y + m22 * z + m23;
+        }
+    }
+
+    /**
+     * Transforms every vertex of src, writing them to dst.
+     * 
+     * @param src The buffer to read the vertices from.
+     * @param dst The buffer to write the transformed vertices to.
+     */
+    void apply(VertexBuffer src, VertexBuffer dst) {
+        apply(src, dst, 0, src.size());
+    }
+}
+
 /**
 * This interface defines a contract for functions that transform a 3D vector.
 */
@@ -454,6 +1576,40 @@ interface TransformFunction {
    V3 apply(V3 u, double... args);
 }
 
+/**
+ * This interface defines a contract for functions that transform a range of packed vertices
+ * in place, without allocating. It is the allocation-free counterpart of TransformFunction.
+ */
+interface BufferTransform {
+   /**
+    * Applies a transformation to the vertices in [from, to) of src and writes them
+    * to the same indices of dst. src and dst may be the same buffer; a single vertex
+    * is the range [i, i + 1).
+    * 
+    * @param src The buffer to read the vertices from.
+    * @param dst The buffer to write the transformed vertices to.
+    * @param from The index of the first vertex, inclusive.
+    * @param to The index of the last vertex, exclusive.
+    * @param a The first transformation parameter.
+    * @param b The second transformation parameter.
+    * @param c The third transformation parameter.
+    */
+   void apply(VertexBuffer src, VertexBuffer dst, int from, int to, double a, double b, double c);
+
+   /**
+    * Applies a transformation to every vertex of src, writing them to dst.
+    * 
+    * @param src The buffer to read the vertices from.
+    * @param dst The buffer to write the transformed vertices to.
+    * @param a The first transformation parameter.
+    * @param b The second transformation parameter.
+    * @param c The third transformation parameter.
+    */
+   default void apply(VertexBuffer src, VertexBuffer dst, double a, double b, double c) {
+       apply(src, dst, 0, src.size(), a, b, c);
+   }
+}
+
 /**
 * This class represents a 3D vector with x, y, and z components.
 */
@@ -483,104 +1639,355 @@ class V3 {
        return "(" + String.format("%.2f", x) + ", " + String.format("%.2f", y) + ", " + String.format("%.2f", z) + ")";
    }
 }
+
 /**
- * This class provides utility functions for 3D transformations.
- * It defines several transformation functions as lambda expressions,
- * each implementing the TransformFunction interface.
+ * This class stores a sequence of 3D points as three parallel coordinate columns
+ * (structure of arrays), so that rotation and projection can run over flat double
+ * arrays instead of allocating a V3 object per point.
  */
-public class Utils {
-    // Projection functions
-    public static final TransformFunction projXY = (u, f) -> new V3(u.x, u.y, u.z * f[0]);
-    public static final TransformFunction projXZ = (u, f) -> new V3(u.x, u.y * f[0], u.z);
-    public static final TransformFunction projYZ = (u, f) -> new V3(u.x * f[0], u.y, u.z);
-
-    // Reflection functions
-    public static final TransformFunction refX = (u, f) -> new V3(u.x * f[0], u.y, u.z);
-    public static final TransformFunction refY = (u, f) -> new V3(u.x, u.y * f[0], u.z);
-    public static final TransformFunction refZ = (u, f) -> new V3(u.x, u.y, u.z * f[0]);
-
-    // Rotation functions
-    public static final TransformFunction rotX = (u, a) -> new V3(
-            u.x,
-            u.y * Math.cos(a[0]) + u.z * Math.sin(a[0]),
-            u.z * Math.cos(a[0]) - u.y * Math.sin(a[0]));
-
-    public static final TransformFunction rotY = (u, a) -> new V3(
-            u.x * Math.cos(a[0]) - u.z * Math.sin(a[0]),
-            u.y,
-            u.z * Math.cos(a[0]) + u.x * Math.sin(a[0]));
-
-    public static final TransformFunction rotZ = (u, a) -> new V3(
-            u.x * Math.cos(a[0]) + u.y * Math.sin(a[0]),
-            u.y * Math.cos(a[0]) - u.x * Math.sin(a[0]),
-            u.z);
-
-    public static final TransformFunction rotZX = (u, a) -> new V3( 
-            u.x * Math.cos(a[0]) + u.y * Math.sin(a[0]),
-            (u.y * Math.cos(a[0]) - u.x * Math.sin(a[0])) * Math.cos(a[1]) + u.z * Math.sin(a[1]),
-            u.z * Math.cos(a[1]) - (u.y * Math.cos(a[0]) - u.x * Math.sin(a[0])) * Math.sin(a[1]));
-
-    // Scaling function
-    public static final TransformFunction scale = (u, f) -> new V3(
-            u.x * f[0],
-            u.y * f[0],
-            u.z * f[0]);
-
-    // Translation function
-    public static final TransformFunction translate = (u, d) -> new V3(
-            u.x + d[0],
-            u.y + d[1],
-            u.z + d[2]);
-
-    // Shearing functions
-    public static final TransformFunction shearOnX = (u, s) -> new V3(
-            u.x, u.y + u.x * s[0], u.z + u.x * s[1]);
-    public static final TransformFunction shearOnY = (u, s) -> new V3(
-            u.x + u.y * s[0], u.y, u.z + u.y * s[1]);
-    public static final TransformFunction shearOnZ = (u, s) -> new V3(
-            u.x + u.z * s[0], u.y + u.z * s[1], u.z);
+class VertexBuffer {
+    // Coordinate columns, one entry per vertex
+    final double[] x, y, z;
+
+    /**
+     * Constructs a buffer holding the given number of vertices, all at the origin.
+     * 
+     * @param size The number of vertices.
+     */
+    VertexBuffer(int size) {
+        x = new double[size];
+        y = new double[size];
+        z = new double[size];
+    }
+
+    /**
+     * Packs an array of vectors into a new buffer.
+     * 
+     * @param vectors The vectors to pack.
+     * @return A buffer with the same coordinates, or null if vectors is null.
+     */
+    static VertexBuffer of(V3[] vectors) {
+        if (vectors == null) {
+            return null;
+        }
+        VertexBuffer buffer = new VertexBuffer(vectors.length);
+        for (int i = 0; i < vectors.length; i++) {
+            buffer.set(i, vectors[i]);
+        }
+        return buffer;
+    }
+
+    /**
+     * Packs an array of shapes into an array of buffers, one per shape.
+     * 
+     * @param shapes The shapes to pack.
+     * @return The packed shapes, or null if shapes is null.
+     */
+    static VertexBuffer[] of(V3[][] shapes) {
+        if (shapes == null) {
+            return null;
+        }
+        VertexBuffer[] buffers = new VertexBuffer[shapes.length];
+        for (int i = 0; i < shapes.length; i++) {
+            buffers[i] = of(shapes[i]);
+        }
+        return buffers;
+    }
+
+    /**
+     * Returns the number of vertices in the buffer.
+     * 
+     * @return The number of vertices.
+     */
+    int size() {
+        return x.length;
+    }
+
+    /**
+     * Sets the coordinates of a vertex.
+     * 
+     * @param i The index of the vertex.
+     * @param x The x-component.
+     * @param y The y-component.
+     * @param z The z-component.
+     */
+    void set(int i, double x, double y, double z) {
+        this.x[i] = x;
+        this.y[i] = y;
+        this.z[i] = z;
+    }
+
+    /**
+     * Sets the coordinates of a vertex from a vector.
+     * 
+     * @param i The index of the vertex.
+     * @param u The vector to copy.
+     */
+    void set(int i, V3 u) {
+        set(i, u.x, u.y, u.z);
+    }
+
+    /**
+     * Returns a vertex as a new V3 object. Adapter for code that still works with vectors.
+     * 
+     * @param i The index of the vertex.
+     * @return A new vector with the coordinates of the vertex.
+     */
+    V3 get(int i) {
+        return new V3(x[i], y[i], z[i]);
+    }
+
+    /**
+     * Copies all coordinates from another buffer of the same size.
+     * 
+     * @param src The buffer to copy from.
+     */
+    void copyFrom(VertexBuffer src) {
+        System.arraycopy(src.x, 0, x, 0, x.length);
+        System.arraycopy(src.y, 0, y, 0, y.length);
+        System.arraycopy(src.z, 0, z, 0, z.length);
+    }
+
+    /**
+     * Writes the coordinates back into existing vectors, without replacing them.
+     * 
+     * @param vectors The vectors to update, in the same order as the buffer.
+     */
+    void copyTo(V3[] vectors) {
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i].x = x[i];
+            vectors[i].y = y[i];
+            vectors[i].z = z[i];
+        }
+    }
+
+    /**
+     * Creates a copy of this buffer.
+     * 
+     * @return The copied buffer.
+     */
+    VertexBuffer copy() {
+        VertexBuffer copy = new VertexBuffer(size());
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Unpacks the buffer into an array of new vectors.
+     * 
+     * @return An array of V3 vectors.
+     */
+    V3[] toArray() {
+        V3[] vectors = new V3[size()];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = get(i);
+        }
+        return vectors;
+    }
+
+    /**
+     * Returns a string representation of a vertex, formatted like V3.toString().
+     * 
+     * @param i The index of the vertex.
+     * @return A string representation of the vertex.
+     */
+    String toString(int i) {
+        return "(" + String.format("%.2f", x[i]) + ", " + String.format("%.2f", y[i]) + ", " + String.format("%.2f", z[i]) + ")";
+    }
 }
 
 /**
- * This interface defines a contract for functions that transform a 3D vector.
+ * This interface defines the inner loops of rotation and perspective projection over packed vertices.
+ * INSTANCE is ScalarKernels, unless the SIMD backend in simd.java is enabled with -Dgeoc.simd=true
+ * and the jdk.incubator.vector module is available. On JDK 17 the SIMD projection is slower than
+ * the scalar loop and allocates on every call, so it stays opt-in until it beats it.
  */
-interface TransformFunction {
+interface VertexKernels {
+    VertexKernels INSTANCE = load();
+
     /**
-     * Applies a transformation to a given 3D vector.
+     * Rotates the vertices in [from, to) of src, writing them to dst.
      * 
-     * @param u The vector to transform.
-     * @param args An array of double values representing transformation parameters.
-     * @return The transformed vector.
+     * @param r The rotation to apply.
+     * @param src The buffer to read the vertices from.
+     * @param dst The buffer to write the rotated vertices to.
+     * @param from The index of the first vertex, inclusive.
+     * @param to The index of the last vertex, exclusive.
      */
-    V3 apply(V3 u, double... args);
+    void rotate(Rotation r, VertexBuffer src, VertexBuffer dst, int from, int to);
+
+    /**
+     * Projects the vertices in [from, to) of src onto the screen with the canvas' perspective,
+     * cx + x * near / (y + far) * zoom, writing vertex i to xs[i - from] and ys[i - from].
+     * 
+     * @param src The buffer to read the (camera rotated) vertices from.
+     * @param from The index of the first vertex, inclusive.
+     * @param to The index of the last vertex, exclusive.
+     * @param cx The x-coordinate of the screen center.
+     * @param cy The y-coordinate of the screen center.
+     * @param near The distance of the projection plane.
+     * @param far The distance of the camera from the origin.
+     * @param zoom The zoom level.
+     * @param xs The array to write the screen x-coordinates to.
+     * @param ys The array to write the screen y-coordinates to.
+     */
+    void project(VertexBuffer src, int from, int to, double cx, double cy, double near, double far, double zoom, int[] xs, int[] ys);
+
+    /**
+     * Picks the SIMD backend if it is enabled and can be loaded, or the scalar one.
+     * 
+     * @return The backend to use.
+     */
+    private static VertexKernels load() {
+        if (Boolean.getBoolean("geoc.simd")) {
+            try {
+                return (VertexKernels) Class.forName("SimdKernels").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // jdk.incubator.vector is not available, use the scalar loops
+            }
+        }
+        return new ScalarKernels();
+    }
 }
 
 /**
- * This class represents a 3D vector with x, y, and z components.
+ * This class implements VertexKernels with plain scalar loops.
  */
-class V3 {
-    double x, y, z;
+class ScalarKernels implements VertexKernels {
+    @Override
+    public void rotate(Rotation r, VertexBuffer src, VertexBuffer dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double x = src.x[i], y = src.y[i], z = src.z[i];
+            dst.x[i] = r.m00 * x + r.m01 * y + r.m02 * z;
+            dst.y[i] = r.m10 * x + r.m11 * y + r.m12 * z;
+            dst.z[i] = r.m20 * x + r.m21 * y + r.m22 * z;
+        }
+    }
+
+    @Override
+    public void project(VertexBuffer src, int from, int to, double cx, double cy, double near, double far, double zoom, int[] xs, int[] ys) {
+        for (int i = from; i < to; i++) {
+            double y = src.y[i] + far;
+            xs[i - from] = (int) (cx + (src.x[i] * near / y) * zoom);
+            ys[i - from] = (int) (cy + (src.z[i] * near / y) * zoom);
+        }
+    }
+}
+
+/**
+ * This class runs transformations over large vertex ranges on the common fork-join pool.
+ * Ranges of up to THRESHOLD vertices stay on the calling thread, so small scenes keep
+ * the single-threaded path; longer ones are split in halves until each chunk fits.
+ */
+class ParallelTransform {
+    // Largest vertex range transformed on the calling thread, set with -Dgeoc.parallelThreshold
+    private static final int THRESHOLD = Integer.getInteger("geoc.parallelThreshold", 1 << 15);
+
+    /**
+     * This interface defines a transformation of a vertex range with its parameters already bound,
+     * such as Matrix4::apply or Rotation::apply.
+     */
+    interface RangeTransform {
+        void apply(VertexBuffer src, VertexBuffer dst, int from, int to);
+    }
 
     /**
-     * Constructs a 3D vector with the given x, y, and z components.
+     * Transforms every vertex of src into dst, in parallel if src is larger than the threshold.
      * 
-     * @param x The x-component of the vector.
-     * @param y The y-component of the vector.
-     * @param z The z-component of the vector.
+     * @param transform The transformation to apply.
+     * @param src The buffer to read the vertices from.
+     * @param dst The buffer to write the transformed vertices to.
      */
-    V3(double x, double y, double z) {
-        this.x = x;
-        this.y = y;
-        this.z = z;
+    static void apply(RangeTransform transform, VertexBuffer src, VertexBuffer dst) {
+        if (src.size() <= THRESHOLD) {
+            transform.apply(src, dst, 0, src.size());
+        } else {
+            ForkJoinPool.commonPool().invoke(new RangeTask(transform, src, dst, 0, src.size()));
+        }
     }
 
     /**
-     * Returns a string representation of the vector.
+     * Transforms every vertex of each src buffer into the dst buffer at the same index,
+     * in parallel if the shapes hold more vertices in total than the threshold.
+     * Small shapes are batched together; large ones are split on their own.
      * 
-     * @return A string representation of the vector.
+     * @param transform The transformation to apply.
+     * @param src The buffers to read the vertices from.
+     * @param dst The buffers to write the transformed vertices to.
      */
-    @Override
-    public String toString() {
-        return "(" + String.format("%.2f", x) + ", " + String.format("%.2f", y) + ", " + String.format("%.2f", z) + ")";
+    static void apply(RangeTransform transform, VertexBuffer[] src, VertexBuffer[] dst) {
+        ShapesTask task = new ShapesTask(transform, src, dst, 0, src.length);
+        if (task.vertices() <= THRESHOLD) {
+            task.compute();
+        } else {
+            ForkJoinPool.commonPool().invoke(task);
+        }
     }
-}
\ No newline at end of file
+
+    /**
+     * Fork-join task over a vertex range of one buffer.
+     */
+    private static class RangeTask extends RecursiveAction {
+        private final RangeTransform transform;
+        private final VertexBuffer src, dst;
+        private final int from, to;
+
+        RangeTask(RangeTransform transform, VertexBuffer src, VertexBuffer dst, int from, int to) {
+            this.transform = transform;
+            this.src = src;
+            this.dst = dst;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                transform.apply(src, dst, from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RangeTask(transform, src, dst, from, mid), new RangeTask(transform, src, dst, mid, to));
+            }
+        }
+    }
+
+    /**
+     * Fork-join task over a range of shapes.
+     */
+    private static class ShapesTask extends RecursiveAction {
+        private final RangeTransform transform;
+        private final VertexBuffer[] src, dst;
+        private final int from, to;
+
+        ShapesTask(RangeTransform transform, VertexBuffer[] src, VertexBuffer[] dst, int from, int to) {
+            this.transform = transform;
+            this.src = src;
+            this.dst = dst;
+            this.from = from;
+            this.to = to;
+        }
+
+        // Total number of vertices in the shapes of this task
+        long vertices() {
+            long total = 0;
+            for (int i = from; i < to; i++) {
+                total += src[i].size();
+            }
+            return total;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                new RangeTask(transform, src[from], dst[from], 0, src[from].size()).compute();
+            } else if (vertices() <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    transform.apply(src[i], dst[i], 0, src[i].size());
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ShapesTask(transform, src, dst, from, mid), new ShapesTask(transform, src, dst, mid, to));
+            }
+        }
+    }
+}
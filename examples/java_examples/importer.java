@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class streams points out of text files with one point per line, such as XYZ files
+ * ("x y z") and CSV files ("x,y,z"). Fields may be separated by spaces, tabs, commas or
+ * semicolons; columns after the third, such as colors or normals, are ignored, and lines
+ * that do not start with three numbers, such as headers and comments, are skipped.
+ * The bytes are parsed in place out of one reused buffer, without a String per line or
+ * per number, and the points are handed out in packed chunks of CHUNK, without a V3 per
+ * point, so a caller can insert and display each chunk at once instead of every point on its own.
+ */
+class PointImporter {
+    // Number of points handed out at once
+    static final int CHUNK = 1 << 16;
+
+    // Initial size of the read buffer, grown only for longer lines
+    private static final int BUFFER = 1 << 16;
+
+    // Powers of ten that are exact doubles, for numbers whose digits fit in a long
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    // Largest mantissa that converts to a double exactly, and the most digits kept in a long
+    private static final long EXACT = 1L << 53;
+    private static final int MAX_DIGITS = 18;
+
+    /**
+     * Callback receiving the points as they are read.
+     */
+    interface Chunks {
+        /**
+         * Receives the next points of the file.
+         * 
+         * @param points The points, a new buffer owned by the receiver.
+         */
+        void accept(VertexBuffer points);
+    }
+
+    private volatile boolean cancelled;
+    private long points, skipped;
+
+    // Read buffer, the current parse position in it, and the end of the bytes read
+    private byte[] buf = new byte[BUFFER];
+    private int pos, end;
+
+    /**
+     * Stops reading at the next line.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether cancel has been called.
+     * 
+     * @return True if reading was cancelled.
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the number of points read so far.
+     * 
+     * @return The number of points.
+     */
+    long points() {
+        return points;
+    }
+
+    /**
+     * Returns the number of non-empty lines skipped so far because they do not hold a point.
+     * 
+     * @return The number of skipped lines.
+     */
+    long skipped() {
+        return skipped;
+    }
+
+    /**
+     * Reads every point of a stream, handing them out in chunks. The stream is not closed.
+     * 
+     * @param in The stream to read.
+     * @param chunks The callback receiving the points.
+     * @return The number of points read.
+     * @throws IOException If reading fails.
+     */
+    long read(InputStream in, Chunks chunks) throws IOException {
+        VertexBuffer chunk = new VertexBuffer(CHUNK);
+        int n = 0;
+        double[] xyz = new double[3];
+        int start;
+        while (!cancelled && (start = nextLine(in)) >= 0) {
+            int lineEnd = pos;
+            pos = start;
+            if (parsePoint(lineEnd, xyz)) {
+                chunk.set(n++, xyz[0], xyz[1], xyz[2]);
+                points++;
+                if (n == CHUNK) {
+                    chunks.accept(chunk);
+                    chunk = new VertexBuffer(CHUNK);
+                    n = 0;
+                }
+            } else if (!blank(start, lineEnd)) {
+                skipped++;
+            }
+            // Continue after the line break
+            pos = lineEnd + 1;
+        }
+        if (n > 0) {
+            VertexBuffer last = new VertexBuffer(n);
+            System.arraycopy(chunk.x, 0, last.x, 0, n);
+            System.arraycopy(chunk.y, 0, last.y, 0, n);
+            System.arraycopy(chunk.z, 0, last.z, 0, n);
+            chunks.accept(last);
+        }
+        return points;
+    }
+
+    /**
+     * Makes the next line available in the buffer, reading and compacting it as needed.
+     * 
+     * @param in The stream to read.
+     * @return The start of the line in buf, with pos set to its end (a line break or end),
+     *         or -1 at the end of the stream.
+     * @throws IOException If reading fails.
+     */
+    private int nextLine(InputStream in) throws IOException {
+        int scan = pos;
+        while (true) {
+            while (scan < end) {
+                if (buf[scan] == '\n') {
+                    int start = pos;
+                    pos = scan;
+                    return start;
+                }
+                scan++;
+            }
+            // The line continues past the buffered bytes: move it to the front, then read more
+            int length = end - pos;
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, length);
+            } else if (length == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length << 1);
+            }
+            pos = 0;
+            end = scan = length;
+            int read = in.read(buf, end, buf.length - end);
+            if (read < 0) {
+                if (end == 0) {
+                    return -1;
+                }
+                // Last line without a line break: end it at the end of the buffer
+                if (end == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length + 1);
+                }
+                buf[end] = '\n';
+                pos = end;
+                end++;
+                return 0;
+            }
+            end += read;
+        }
+    }
+
+    /**
+     * Parses the first three fields of a line as the coordinates of a point.
+     * 
+     * @param lineEnd The end of the line, pos being its start.
+     * @param xyz Receives the coordinates.
+     * @return True if the line starts with three numbers.
+     */
+    private boolean parsePoint(int lineEnd, double[] xyz) {
+        for (int k = 0; k < 3; k++) {
+            while (pos < lineEnd && separator(buf[pos])) {
+                pos++;
+            }
+            int start = pos;
+            while (pos < lineEnd && !separator(buf[pos])) {
+                pos++;
+            }
+            if (start == pos) {
+                return false;
+            }
+            double value = parseNumber(start, pos);
+            if (Double.isNaN(value)) {
+                return false;
+            }
+            xyz[k] = value;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a decimal number such as "-12.5", ".5" or "1.5e-3". Numbers whose significant
+     * digits fit in 53 bits and whose decimal exponent is within the range of exact powers
+     * of ten are converted with a single multiplication or division, which rounds like
+     * Double.parseDouble; longer or more extreme numbers fall back to it.
+     * 
+     * @param from The first byte of the number.
+     * @param to The byte after the number.
+     * @return The number, or NaN if the bytes are not a finite number.
+     */
+    private double parseNumber(int from, int to) {
+        int i = from;
+        boolean negative = buf[i] == '-';
+        if (negative || buf[i] == '+') {
+            i++;
+        }
+        int unsigned = i;
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean any = false, truncated = false;
+        // Integer part, then fraction digits, each lowering the exponent; leading zeros are not counted
+        for (; i < to && buf[i] >= '0' && buf[i] <= '9'; i++, any = true) {
+            if (digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + (buf[i] - '0');
+                digits += mantissa == 0 ? 0 : 1;
+            } else {
+                exponent++;
+                truncated |= buf[i] != '0';
+            }
+        }
+        if (i < to && buf[i] == '.') {
+            for (i++; i < to && buf[i] >= '0' && buf[i] <= '9'; i++, any = true) {
+                if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (buf[i] - '0');
+                    digits += mantissa == 0 ? 0 : 1;
+                    exponent--;
+                } else {
+                    truncated |= buf[i] != '0';
+                }
+            }
+        }
+        if (!any) {
+            return Double.NaN;
+        }
+        if (i < to && (buf[i] == 'e' || buf[i] == 'E')) {
+            i++;
+            boolean negativeExponent = i < to && buf[i] == '-';
+            if (i < to && (buf[i] == '-' || buf[i] == '+')) {
+                i++;
+            }
+            int e = 0, start = i;
+            for (; i < to && buf[i] >= '0' && buf[i] <= '9'; i++) {
+                e = Math.min(e * 10 + (buf[i] - '0'), 100_000);
+            }
+            if (start == i) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (i != to) {
+            return Double.NaN;
+        }
+        double value;
+        if (!truncated && mantissa < EXACT && Math.abs(exponent) < POW10.length) {
+            value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+        } else {
+            // Too many digits or too large an exponent to round correctly in one step
+            value = Double.parseDouble(new String(buf, unsigned, to - unsigned, StandardCharsets.ISO_8859_1));
+        }
+        if (Double.isInfinite(value)) {
+            return Double.NaN;
+        }
+        return negative ? -value : value;
+    }
+
+    private boolean blank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!separator(buf[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean separator(byte b) {
+        return b == ' ' || b == ',' || b == '\t' || b == ';' || b == '\r';
+    }
+}
@@ -0,0 +1,806 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This enum lists the transformations the GUI applies, each with the matrix of its
+ * complete effect for its parameters. The journal records transformations by this
+ * operation and its parameters, and replays them through the matrix.
+ */
+enum Operation {
+    TRANSLATE {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.translate, a, b, c);
+        }
+    },
+    SCALE {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.scale, a, 0, 0);
+        }
+    },
+    PROJECT_XY {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.projXY, 0, 0, 0);
+        }
+    },
+    PROJECT_XZ {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.projXZ, 0, 0, 0);
+        }
+    },
+    PROJECT_YZ {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.projYZ, 0, 0, 0);
+        }
+    },
+    REFLECT_X {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.refX, -1, 0, 0);
+        }
+    },
+    REFLECT_Y {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.refY, -1, 0, 0);
+        }
+    },
+    REFLECT_Z {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.refZ, -1, 0, 0);
+        }
+    },
+    ROTATE {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.compose(
+                    Matrix4.of(BufferUtils.rotX, a, 0, 0),
+                    Matrix4.of(BufferUtils.rotY, b, 0, 0),
+                    Matrix4.of(BufferUtils.rotZ, c, 0, 0));
+        }
+    },
+    SHEAR_X {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.shearOnX, a, b, 0);
+        }
+    },
+    SHEAR_Y {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.shearOnY, a, b, 0);
+        }
+    },
+    SHEAR_Z {
+        @Override
+        Matrix4 matrix(double a, double b, double c) {
+            return Matrix4.of(BufferUtils.shearOnZ, a, b, 0);
+        }
+    };
+
+    /**
+     * Returns the matrix of the complete transformation.
+     * 
+     * @param a The first parameter, as passed to the listener's transformation.
+     * @param b The second parameter.
+     * @param c The third parameter.
+     * @return The matrix.
+     */
+    abstract Matrix4 matrix(double a, double b, double c);
+}
+
+/**
+ * This class is an undo history of the transformations applied to the vectors and shapes
+ * of the GUI lists. Every transformation is an append-only record of its operation, its
+ * parameters and the list indexes it was applied to, instead of a copy of the geometry.
+ * <p>
+ * Every SNAPSHOT_INTERVAL records, a snapshot keeps the state of the elements those records
+ * changed, so snapshots are deltas over a base snapshot of the whole scene. Undo and redo
+ * move to a position in the history: the elements touched since the nearest snapshot at or
+ * before it are restored from the snapshots, and the records from there are replayed.
+ * Once there are more than MAX_UNDO records, the oldest snapshots are merged into a new
+ * base and the records before it are dropped.
+ * <p>
+ * With a directory, the history is also persisted for crash recovery: the base snapshot is
+ * a SceneFile, and each record and each undo or redo is appended to a log next to it, so
+ * that recover can rebuild the scene after a crash. Both files carry a generation number,
+ * and a new generation is written completely before the previous one is deleted.
+ * The files are written on a writer thread of their own, in order, so that the GUI never
+ * waits for the disk: the journal only hands it the snapshot and the log entries. A new
+ * generation still waiting to be written when a newer one is started is skipped, with the
+ * log entries meant for it.
+ * Adding, importing or opening changes the lists themselves, which the records cannot
+ * describe, so it starts a new history with reset.
+ */
+class SceneJournal {
+    // Records between two snapshots, and the most records kept for undo
+    static final int SNAPSHOT_INTERVAL = 32, MAX_UNDO = 256;
+
+    // Subdirectory the previous session's history is moved to
+    private static final String PREVIOUS = "previous";
+
+    // Log entry tags, the log file's magic number, and the size of its header
+    private static final byte RECORD = 1, MOVE = 2;
+    private static final int LOG_MAGIC = 'V' | '3' << 8 | 'J' << 16 | 'L' << 24;
+    private static final int LOG_HEADER = 16;
+
+    /**
+     * This class is one recorded transformation.
+     */
+    static final class Record {
+        final Operation op;
+        final double a, b, c;
+        // Whether targets index the shapes list instead of the vectors list
+        final boolean shapes;
+        final int[] targets;
+
+        Record(Operation op, double a, double b, double c, boolean shapes, int[] targets) {
+            this.op = op;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.shapes = shapes;
+            this.targets = targets;
+        }
+    }
+
+    /**
+     * This class holds the state of some elements at a position in the history:
+     * the coordinates of vectors, and the points of shapes (a VertexBuffer) or the
+     * matrix of instances (a Matrix4). Indexes are sorted for binary search.
+     */
+    private static final class Snapshot {
+        final int position;
+        final int[] vectorIds;
+        final VertexBuffer vectors;
+        final int[] shapeIds;
+        final Object[] shapes;
+
+        Snapshot(int position, int[] vectorIds, VertexBuffer vectors, int[] shapeIds, Object[] shapes) {
+            this.position = position;
+            this.vectorIds = vectorIds;
+            this.vectors = vectors;
+            this.shapeIds = shapeIds;
+            this.shapes = shapes;
+        }
+    }
+
+    private final List<V3> vectors;
+    private final List<Object> shapes;
+    private final Path dir;
+
+    // Records from the base on, the position of the first one, and the current position
+    private final List<Record> records = new ArrayList<>();
+    private int base, position;
+
+    // Base snapshot first, then deltas by position
+    private final List<Snapshot> snapshots = new ArrayList<>();
+
+    // Persistence: the thread writing the files, or null, and the first failure
+    private final ExecutorService writer;
+    private volatile IOException failure;
+
+    // Number of generations started; new log entries belong to the latest one
+    private volatile long started;
+
+    // Written on the writer thread only: the log of the current generation, or null, and its number
+    private FileChannel log;
+    private long generation;
+
+    /**
+     * Constructs a journal over the GUI lists, starting with a snapshot of their current state.
+     * 
+     * @param vectors The vectors list.
+     * @param shapes The shapes list, V3 arrays and instances.
+     * @param dir The directory to persist the history in, or null to keep it in memory only.
+     *            A history already in it is kept for recover.
+     */
+    SceneJournal(List<V3> vectors, List<Object> shapes, Path dir) {
+        this.vectors = vectors;
+        this.shapes = shapes;
+        this.dir = dir;
+        // One thread at most, so the files are written in order, and none while idle, so the
+        // application can exit once everything is written
+        writer = dir == null ? null : new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> new Thread(r, "journal"));
+        if (dir != null) {
+            try {
+                archive();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        reset();
+    }
+
+    /**
+     * Returns the current position in the history, the number of records applied since
+     * the history started.
+     * 
+     * @return The position.
+     */
+    int position() {
+        return position;
+    }
+
+    /**
+     * Returns the first failure to persist the history, after which it is only kept in memory.
+     * 
+     * @return The failure, or null.
+     */
+    IOException failure() {
+        return failure;
+    }
+
+    /**
+     * Returns whether there is a record to undo.
+     * 
+     * @return True if undo would change the scene.
+     */
+    boolean canUndo() {
+        return position > base;
+    }
+
+    /**
+     * Returns whether there is an undone record to redo.
+     * 
+     * @return True if redo would change the scene.
+     */
+    boolean canRedo() {
+        return position < base + records.size();
+    }
+
+    /**
+     * Starts a new history from the current state of the lists, after they were changed
+     * other than by a transformation.
+     */
+    void reset() {
+        records.clear();
+        snapshots.clear();
+        base = position;
+        snapshots.add(capture(position, allIds(vectors.size()), allIds(shapes.size())));
+        persist();
+    }
+
+    /**
+     * Records a transformation that is about to be applied to the lists. Undone records are
+     * dropped. The transformations recorded before must have been applied completely, and
+     * this one not yet, since a snapshot may be taken of the elements they changed.
+     * 
+     * @param op The operation.
+     * @param a The first parameter.
+     * @param b The second parameter.
+     * @param c The third parameter.
+     * @param shapes Whether targets index the shapes list instead of the vectors list.
+     * @param targets The list indexes of the transformed elements.
+     */
+    void record(Operation op, double a, double b, double c, boolean shapes, int[] targets) {
+        // Forget the redo history
+        records.subList(position - base, records.size()).clear();
+        snapshots.removeIf(s -> s.position > position);
+        if (position - snapshots.get(snapshots.size() - 1).position >= SNAPSHOT_INTERVAL) {
+            snapshots.add(captureTouched(snapshots.get(snapshots.size() - 1).position, position));
+        }
+        Record record = new Record(op, a, b, c, shapes, targets.clone());
+        records.add(record);
+        position++;
+        append(record);
+        if (records.size() > MAX_UNDO) {
+            compact();
+        }
+    }
+
+    /**
+     * Undoes the last record and drops it, so that it cannot be redone, after its
+     * transformation failed. The elements it may have changed are restored, and the
+     * persisted history is rewritten without it.
+     * 
+     * @return True if a record was discarded, false if the last record was undone already.
+     */
+    boolean discard() {
+        if (!canUndo() || canRedo()) {
+            return false;
+        }
+        moveTo(position - 1);
+        records.remove(records.size() - 1);
+        persist();
+        return true;
+    }
+
+    /**
+     * Undoes the last applied record.
+     * 
+     * @return True if a record was undone.
+     */
+    boolean undo() {
+        if (!canUndo()) {
+            return false;
+        }
+        moveTo(position - 1);
+        return true;
+    }
+
+    /**
+     * Redoes the last undone record.
+     * 
+     * @return True if a record was redone.
+     */
+    boolean redo() {
+        if (!canRedo()) {
+            return false;
+        }
+        apply(records.get(position - base));
+        position++;
+        appendMove();
+        return true;
+    }
+
+    /**
+     * Moves back to an earlier position: restores every element touched since the nearest
+     * snapshot at or before it, then replays the records from the snapshot to the position.
+     * 
+     * @param target The position, between base and position.
+     */
+    private void moveTo(int target) {
+        int s = snapshots.size() - 1;
+        while (snapshots.get(s).position > target) {
+            s--;
+        }
+        Snapshot from = snapshots.get(s);
+        int[][] touched = touched(from.position, position);
+        for (int id : touched[0]) {
+            restoreVector(id, s);
+        }
+        for (int id : touched[1]) {
+            restoreShape(id, s);
+        }
+        for (int p = from.position; p < target; p++) {
+            apply(records.get(p - base));
+        }
+        position = target;
+        appendMove();
+    }
+
+    /**
+     * Merges the snapshots up to the latest one that still leaves MAX_UNDO records to undo
+     * into a new base snapshot, and drops the records before it.
+     */
+    private void compact() {
+        int keep = 0;
+        while (keep + 1 < snapshots.size() && snapshots.get(keep + 1).position <= position - MAX_UNDO) {
+            keep++;
+        }
+        if (keep == 0) {
+            return;
+        }
+        Snapshot newBase = snapshots.get(keep);
+        // The latest state of every element in the snapshots up to the new base
+        VertexBuffer vectorState = new VertexBuffer(vectors.size());
+        Object[] shapeState = new Object[shapes.size()];
+        for (int i = 0; i < vectorState.size(); i++) {
+            int s = find(keep, i, false);
+            int k = Arrays.binarySearch(snapshots.get(s).vectorIds, i);
+            VertexBuffer state = snapshots.get(s).vectors;
+            vectorState.set(i, state.x[k], state.y[k], state.z[k]);
+        }
+        for (int i = 0; i < shapeState.length; i++) {
+            int s = find(keep, i, true);
+            shapeState[i] = snapshots.get(s).shapes[Arrays.binarySearch(snapshots.get(s).shapeIds, i)];
+        }
+        records.subList(0, newBase.position - base).clear();
+        snapshots.subList(0, keep + 1).clear();
+        base = newBase.position;
+        snapshots.add(0, new Snapshot(base, allIds(vectorState.size()), vectorState,
+                allIds(shapeState.length), shapeState));
+        persist();
+    }
+
+    /**
+     * Replays a record on the lists.
+     * 
+     * @param record The record.
+     */
+    private void apply(Record record) {
+        Matrix4 m = record.op.matrix(record.a, record.b, record.c);
+        if (!record.shapes) {
+            VertexBuffer points = new VertexBuffer(record.targets.length);
+            for (int k = 0; k < record.targets.length; k++) {
+                points.set(k, vectors.get(record.targets[k]));
+            }
+            m.apply(points, points);
+            for (int k = 0; k < record.targets.length; k++) {
+                V3 v = vectors.get(record.targets[k]);
+                v.x = points.x[k];
+                v.y = points.y[k];
+                v.z = points.z[k];
+            }
+            return;
+        }
+        for (int id : record.targets) {
+            Object shape = shapes.get(id);
+            if (shape instanceof Instance) {
+                Instance instance = (Instance) shape;
+                instance.transform = instance.transform.then(m);
+            } else {
+                V3[] points = (V3[]) shape;
+                VertexBuffer buffer = VertexBuffer.of(points);
+                m.apply(buffer, buffer);
+                buffer.copyTo(points);
+                Bounds.update(points, Bounds.of(buffer));
+            }
+        }
+    }
+
+    private void restoreVector(int id, int from) {
+        Snapshot s = snapshots.get(find(from, id, false));
+        int k = Arrays.binarySearch(s.vectorIds, id);
+        V3 v = vectors.get(id);
+        v.x = s.vectors.x[k];
+        v.y = s.vectors.y[k];
+        v.z = s.vectors.z[k];
+    }
+
+    private void restoreShape(int id, int from) {
+        Snapshot s = snapshots.get(find(from, id, true));
+        Object state = s.shapes[Arrays.binarySearch(s.shapeIds, id)];
+        Object shape = shapes.get(id);
+        if (shape instanceof Instance) {
+            ((Instance) shape).transform = (Matrix4) state;
+        } else {
+            VertexBuffer buffer = (VertexBuffer) state;
+            buffer.copyTo((V3[]) shape);
+            Bounds.update((V3[]) shape, Bounds.of(buffer));
+        }
+    }
+
+    /**
+     * Finds the latest snapshot at or before one that holds an element. The base holds all.
+     * 
+     * @param from The index of the snapshot to start at.
+     * @param id The list index of the element.
+     * @param shape Whether the element is a shape.
+     * @return The index of the snapshot.
+     */
+    private int find(int from, int id, boolean shape) {
+        for (int s = from; s > 0; s--) {
+            Snapshot snapshot = snapshots.get(s);
+            if (Arrays.binarySearch(shape ? snapshot.shapeIds : snapshot.vectorIds, id) >= 0) {
+                return s;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Collects the elements the records in [from, to) were applied to.
+     * 
+     * @param from The first position.
+     * @param to The position after the last.
+     * @return The sorted vector indexes and the sorted shape indexes.
+     */
+    private int[][] touched(int from, int to) {
+        boolean[] vectorSeen = new boolean[vectors.size()], shapeSeen = new boolean[shapes.size()];
+        for (int p = from; p < to; p++) {
+            Record record = records.get(p - base);
+            boolean[] seen = record.shapes ? shapeSeen : vectorSeen;
+            for (int id : record.targets) {
+                seen[id] = true;
+            }
+        }
+        return new int[][] { indexes(vectorSeen), indexes(shapeSeen) };
+    }
+
+    private Snapshot captureTouched(int from, int to) {
+        int[][] touched = touched(from, to);
+        return capture(to, touched[0], touched[1]);
+    }
+
+    /**
+     * Takes a snapshot of some elements of the lists.
+     * 
+     * @param at The position of the snapshot.
+     * @param vectorIds The sorted vector indexes.
+     * @param shapeIds The sorted shape indexes.
+     * @return The snapshot.
+     */
+    private Snapshot capture(int at, int[] vectorIds, int[] shapeIds) {
+        VertexBuffer vectorState = new VertexBuffer(vectorIds.length);
+        for (int k = 0; k < vectorIds.length; k++) {
+            vectorState.set(k, vectors.get(vectorIds[k]));
+        }
+        Object[] shapeState = new Object[shapeIds.length];
+        for (int k = 0; k < shapeIds.length; k++) {
+            Object shape = shapes.get(shapeIds[k]);
+            shapeState[k] = shape instanceof Instance ? ((Instance) shape).transform : VertexBuffer.of((V3[]) shape);
+        }
+        return new Snapshot(at, vectorIds, vectorState, shapeIds, shapeState);
+    }
+
+    private static int[] allIds(int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+        }
+        return ids;
+    }
+
+    private static int[] indexes(boolean[] seen) {
+        int n = 0;
+        for (boolean s : seen) {
+            n += s ? 1 : 0;
+        }
+        int[] ids = new int[n];
+        for (int i = 0, k = 0; i < seen.length; i++) {
+            if (seen[i]) {
+                ids[k++] = i;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Starts a new generation: the base snapshot as a scene file, then a log holding the
+     * records kept since the base and the current position. The files are written on the
+     * writer thread, and the previous generation is deleted once both are complete.
+     */
+    private void persist() {
+        if (writer == null || failure != null) {
+            return;
+        }
+        Snapshot snapshot = snapshots.get(0);
+        List<Object> shapeState = new ArrayList<>();
+        for (int i = 0; i < snapshot.shapes.length; i++) {
+            Object state = snapshot.shapes[i];
+            if (state instanceof Matrix4) {
+                Instance live = (Instance) shapes.get(i);
+                Instance copy = new Instance(live.shape, live.res);
+                copy.transform = (Matrix4) state;
+                state = copy;
+            }
+            shapeState.add(state);
+        }
+        List<ByteBuffer> entries = new ArrayList<>();
+        for (Record record : records) {
+            entries.add(entry(record));
+        }
+        entries.add(move(position - base));
+        long next = ++started;
+        writer.execute(() -> {
+            // A newer generation has been started, which holds everything this one would
+            if (next != started || failure != null) {
+                return;
+            }
+            try {
+                Files.createDirectories(dir);
+                if (log != null) {
+                    log.close();
+                }
+                SceneFile.write(scene(dir, next), List.of(snapshot.vectors), shapeState);
+                log = FileChannel.open(log(dir, next), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                write(ByteBuffer.allocate(LOG_HEADER).order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(LOG_MAGIC).putInt(0).putLong(next));
+                for (ByteBuffer entry : entries) {
+                    write(entry);
+                }
+                log.force(true);
+                Files.deleteIfExists(scene(dir, generation));
+                Files.deleteIfExists(log(dir, generation));
+                generation = next;
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+    }
+
+    /**
+     * Appends a record to the log.
+     * 
+     * @param record The record.
+     */
+    private void append(Record record) {
+        append(entry(record));
+    }
+
+    /**
+     * Appends the current position to the log, after an undo or redo.
+     */
+    private void appendMove() {
+        append(move(position - base));
+    }
+
+    /**
+     * Appends an entry to the log of the latest generation started, on the writer thread.
+     */
+    private void append(ByteBuffer entry) {
+        if (writer == null || failure != null) {
+            return;
+        }
+        long to = started;
+        writer.execute(() -> {
+            // Entries of a skipped generation are in the newer one already
+            if (to == started && log != null) {
+                try {
+                    write(entry);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        });
+    }
+
+    private static ByteBuffer entry(Record record) {
+        ByteBuffer entry = ByteBuffer.allocate(8 + 3 * Double.BYTES + record.targets.length * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        entry.put(RECORD).put((byte) record.op.ordinal()).put((byte) (record.shapes ? 1 : 0)).put((byte) 0);
+        entry.putInt(record.targets.length).putDouble(record.a).putDouble(record.b).putDouble(record.c);
+        for (int id : record.targets) {
+            entry.putInt(id);
+        }
+        return entry;
+    }
+
+    private static ByteBuffer move(int at) {
+        return ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).put(MOVE).put(new byte[3]).putInt(at);
+    }
+
+    private void write(ByteBuffer entry) throws IOException {
+        entry.flip();
+        while (entry.hasRemaining()) {
+            log.write(entry);
+        }
+    }
+
+    private void fail(IOException e) {
+        failure = e;
+        try {
+            if (log != null) {
+                log.close();
+            }
+        } catch (IOException ignored) {
+            // Already failing
+        }
+        log = null;
+    }
+
+    /**
+     * Rebuilds the lists from the history persisted by the previous session, as they were
+     * at its last record, undo or redo, and continues with its records as this history.
+     * The lists are cleared first.
+     * 
+     * @throws IOException If there is no complete previous history, or it cannot be read.
+     */
+    void recover() throws IOException {
+        Path previous = dir == null ? null : dir.resolve(PREVIOUS);
+        long last = previous == null ? -1 : latestGeneration(previous);
+        if (last < 0) {
+            throw new IOException("No previous session to recover");
+        }
+        SceneFile.Scene scene = SceneFile.read(scene(previous, last));
+
+        // Collect the records and the final position, stopping at an entry cut short by a crash
+        List<Record> replay = new ArrayList<>();
+        int end = 0;
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(log(previous, last))).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.remaining() < LOG_HEADER || in.getInt() != LOG_MAGIC || in.getInt() != 0 || in.getLong() != last) {
+            throw new IOException("Corrupt journal log in " + previous);
+        }
+        while (in.remaining() >= 8) {
+            byte tag = in.get();
+            int op = in.get(), shape = in.get();
+            in.get();
+            int n = in.getInt();
+            if (tag == MOVE) {
+                end = n;
+                continue;
+            }
+            if (tag != RECORD || op < 0 || op >= Operation.values().length || n < 0
+                    || in.remaining() < 3 * Double.BYTES + (long) n * Integer.BYTES) {
+                break;
+            }
+            double a = in.getDouble(), b = in.getDouble(), c = in.getDouble();
+            int[] targets = new int[n];
+            for (int k = 0; k < n; k++) {
+                targets[k] = in.getInt();
+            }
+            replay.subList(Math.min(end, replay.size()), replay.size()).clear();
+            replay.add(new Record(Operation.values()[op], a, b, c, shape != 0, targets));
+            end = replay.size();
+        }
+
+        vectors.clear();
+        for (VertexBuffer set : scene.vectors) {
+            vectors.addAll(Arrays.asList(set.toArray()));
+        }
+        shapes.clear();
+        for (Object shape : scene.shapes) {
+            shapes.add(shape instanceof Instance ? shape : ((VertexBuffer) shape).toArray());
+        }
+        // Replay every record, so that the undone ones can be redone, then undo back to the end
+        reset();
+        for (Record record : replay) {
+            record(record.op, record.a, record.b, record.c, record.shapes, record.targets);
+            apply(record);
+        }
+        while (position - base > end) {
+            undo();
+        }
+    }
+
+    /**
+     * Moves the files of the previous session's history out of the way of this one,
+     * replacing the history kept from the session before.
+     */
+    private void archive() throws IOException {
+        Files.createDirectories(dir);
+        if (latestGeneration(dir) < 0) {
+            return;
+        }
+        Path previous = Files.createDirectories(dir.resolve(PREVIOUS));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(previous, "journal-*")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "journal-*")) {
+            for (Path file : files) {
+                Files.move(file, previous.resolve(file.getFileName()));
+            }
+        }
+    }
+
+    /**
+     * Finds the latest generation of a history with both its files; a later one may have
+     * been cut short by a crash.
+     * 
+     * @param dir The directory of the history.
+     * @return The generation, or -1 if there is none.
+     * @throws IOException If the directory cannot be listed.
+     */
+    private static long latestGeneration(Path dir) throws IOException {
+        long latest = -1;
+        if (!Files.isDirectory(dir)) {
+            return latest;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "journal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long g = Long.parseLong(name.substring(8, name.length() - 4));
+                    if (g > latest && Files.exists(scene(dir, g))) {
+                        latest = g;
+                    }
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static Path scene(Path dir, long generation) {
+        return dir.resolve("journal-" + generation + ".v3s");
+    }
+
+    private static Path log(Path dir, long generation) {
+        return dir.resolve("journal-" + generation + ".log");
+    }
+}
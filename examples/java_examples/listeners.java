@@ -2,13 +2,30 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ComponentEvent;
 import java.awt.event.ComponentAdapter;
+import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Vector;
-import javax.swing.Timer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.DoubleFunction;
+import javax.swing.AbstractListModel;
+import javax.swing.JFileChooser;
+import javax.swing.ListModel;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.event.ListSelectionListener;
 
 /**
@@ -17,6 +34,7 @@ import javax.swing.event.ListSelectionListener;
  *     <li>Canvas resizing listener</li>
  *     <li>Mouse motion listener for camera rotation</li>
  *     <li>Mouse wheel listener for zooming</li>
+ *     <li>Mouse listener for picking vectors and shapes on the canvas</li>
  *     <li>Button listeners for various transformations and object creation</li>
  *     <li>List selection listener for selecting vectors and shapes</li>
  * </ul>
@@ -29,21 +47,54 @@ import javax.swing.event.ListSelectionListener;
  * </ul>
  * 
  * The transformation methods (translation, scaling, rotation, reflection, shearing)
- * are implemented with animation. The animation is achieved using a Swing Timer
- * that updates the transformation parameters incrementally over a certain number
- * of frames. This creates a smooth visual effect for the transformations.
+ * are implemented with animation. Every animation runs on one shared AnimationManager,
+ * which updates the transformation parameters incrementally over a certain number
+ * of frames and refreshes the canvas once per frame for all of them.
+ * Every transformation is recorded in a SceneJournal before it starts, so that it can be
+ * undone and redone, and the history is persisted to the directory named by the
+ * journal.dir system property, if it is set, for restoring after a crash.
  */
 @SuppressWarnings("unchecked")
 class Listeners {
-   // Constants for animation frames, interval, and FPS
+   // Constants for animation frames, interval, and the FPS cap
    private static final int FRAMES = 25, INTERVAL = 30, FPS = 200;
 
+   // Time in milliseconds the TSP heuristics may spend improving a path
+   private static final long TSP_BUDGET = 250;
+
+   // Time in milliseconds between two progress reports of the exact TSP search
+   private static final long TSP_PROGRESS = 200;
+
+   // Largest scene file vector count added to the GUI list; larger clouds are only drawn
+   private static final long LIST_LIMIT = 100_000;
+
+   // Largest buffer animated frame by frame; larger ones are transformed in the background
+   private static final int BACKGROUND_LIMIT = 1 << 20;
+
    // Static reference to the singleton instance of the Demo canvas
    private static final Demo CANVAS = Demo.getInstance();
 
+   // Drives every transformation animation and the idle rotation, and the easing they use
+   private static final AnimationManager ANIMATIONS = new AnimationManager(CANVAS, INTERVAL);
+   private static final Easing EASING = Easing.LINEAR;
+
+   // Runs long computations off the event dispatch thread, and the transformations it is running
+   private static final ComputeExecutor COMPUTE = new ComputeExecutor(CANVAS);
+   private static int transforming;
+   // Why a background job of the running transformation failed, or null
+   private static String transformFailure;
+   // Point files being imported into the list, whose journal snapshot is only taken when they are done
+   private static int importing;
+
+   // Undo history of the transformations, persisted if the journal.dir property names a directory
+   private static final SceneJournal JOURNAL = new SceneJournal(Window.vectors, Window.shapes, journalDir());
+   private static boolean journalFailureReported;
+   // Journal position right after the record of the last transformation, or -1 if it was not recorded
+   private static int recorded = -1;
+
    /**
     * Initializes the canvas with listeners for resizing, mouse motion, and mouse wheel events.
-    * Also starts a timer for repainting the canvas at a fixed rate.
+    * Also caps the rate at which the canvas repaints when its frame is dirty.
     * 
     * @return The initialized Demo canvas instance.
     */
@@ -61,19 +112,66 @@ class Listeners {
       CANVAS.addMouseMotionListener(new MouseMotionAdapter() {
          @Override
          public void mouseDragged(MouseEvent e) {
-            // Convert screen coordinates to camera angles and update the view
-            CANVAS.screenPositionToAngles(e.getX(), e.getY());
+            // Convert screen coordinates to camera angles and update the view,
+            // once per frame for the latest position of a burst of drags
+            int x = e.getX(), y = e.getY();
+            CANVAS.getScheduler().coalesce(() -> CANVAS.screenPositionToAngles(x, y));
+         }
+      });
+
+      // Mouse listener for picking vectors and shapes on the canvas
+      CANVAS.addMouseListener(new MouseAdapter() {
+         @Override
+         public void mouseClicked(MouseEvent e) {
+            // Control-click adds or removes the picked element, a plain click selects only it
+            pick(e.getX(), e.getY(), e.isControlDown());
          }
       });
 
       // Mouse wheel listener for zooming
       CANVAS.addMouseWheelListener(e -> CANVAS.incrementI(e.getWheelRotation() << 2));
 
-      // Timer for repainting the canvas at a fixed rate
-      new Timer(1000 / FPS, e -> CANVAS.repaint()).start();
+      // Repaint the canvas whenever its frame is marked dirty, at most FPS times per second
+      CANVAS.getScheduler().setMaxFps(FPS);
       return CANVAS;
    }
 
+   /**
+    * Selects the vector or shape drawn at a screen position in the JList.
+    * The canvas then shows the new selection through the list selection listener,
+    * the same way as selecting it in the list.
+    * 
+    * @param x The screen x coordinate.
+    * @param y The screen y coordinate.
+    * @param toggle Whether to add or remove the picked element instead of selecting only it.
+    */
+   private static void pick(int x, int y, boolean toggle) {
+      // Vectors are drawn over shapes, so they are hit first
+      int vector = CANVAS.pickVector(x, y), shape = vector < 0 ? CANVAS.pickShape(x, y) : -1;
+      int instance = vector < 0 && shape < 0 ? CANVAS.pickInstance(x, y) : -1;
+      Object picked = vector >= 0 ? CANVAS._vectors != null ? CANVAS._vectors[vector] : null
+            : shape >= 0 ? CANVAS._shapes[shape]
+            : instance >= 0 ? CANVAS.instances[instance] : null;
+      if (picked == null) {
+         return;
+      }
+      // Find the picked element in the list by identity
+      ListModel<?> model = Window.list.getModel();
+      for (int i = 0; i < model.getSize(); i++) {
+         if (model.getElementAt(i) == picked) {
+            if (!toggle) {
+               Window.list.setSelectedIndex(i);
+            } else if (Window.list.isSelectedIndex(i)) {
+               Window.list.removeSelectionInterval(i, i);
+            } else {
+               Window.list.addSelectionInterval(i, i);
+            }
+            Window.list.ensureIndexIsVisible(i);
+            return;
+         }
+      }
+   }
+
    /**
     * Creates an action listener for the "Toggle Mode" button.
     * This listener switches between displaying vectors and shapes on the canvas.
@@ -88,25 +186,38 @@ class Listeners {
          // Backup arrays to store vectors and shapes when switching modes
          private Object[] vectorsBackup;
          private Object[][] shapesBackup;
+         private Instance[] instancesBackup;
+         // Packed vectors shown without V3 objects, such as a loaded point cloud
+         private VertexBuffer bufferBackup;
 
          @Override
          public void actionPerformed(ActionEvent e) {
+            // Commit running transformations before swapping the geometry
+            ANIMATIONS.finishAll();
             // Toggle between vectors and shapes
             if (isVectorsVisible) {
                // Store shapes in a backup array and display vectors
                shapesBackup = CANVAS._shapes;
-               CANVAS.setVectors((V3[]) vectorsBackup);
+               instancesBackup = CANVAS.instances;
+               if (bufferBackup != null) {
+                  CANVAS.setVectorBuffer(bufferBackup);
+               } else {
+                  CANVAS.setVectors((V3[]) vectorsBackup);
+               }
                vectorsBackup = null;
+               bufferBackup = null;
                CANVAS.setShapes(null);
-               CANVAS.updateVectors();
+               CANVAS.setInstances(null);
                Window.appendVectors();
             } else {
                // Store vectors in a backup array and display shapes
                vectorsBackup = CANVAS._vectors;
-               CANVAS._shapes = (V3[][]) shapesBackup;
+               bufferBackup = CANVAS._vectors == null ? CANVAS.vectorData : null;
+               CANVAS.setShapes((V3[][]) shapesBackup);
+               CANVAS.setInstances(instancesBackup);
                shapesBackup = null;
+               instancesBackup = null;
                CANVAS.setVectors(null);
-               CANVAS.updateShapes();
                Window.appendShapes();
             }
             // Toggle the visibility flag
@@ -125,6 +236,8 @@ class Listeners {
    protected static ListSelectionListener createListSelectionListener() {
       return e -> {
          if (!e.getValueIsAdjusting()) {
+            // Commit running transformations before swapping the geometry
+            ANIMATIONS.finishAll();
             // Create a vector to store the selected elements from the list
             Vector selected = new Vector<>();
             Window.list.getSelectedValuesList().forEach(selected::add);
@@ -134,8 +247,18 @@ class Listeners {
                // Display the selected vectors on the canvas
                CANVAS.setVectors((V3[]) selected.toArray(new V3[0]));
             } else {
-               // Display the selected shape on the canvas
-               CANVAS.setShapes((V3[][]) selected.toArray(new V3[0][]));
+               // Display the selected shapes on the canvas, instances drawn from their shared meshes
+               Vector<V3[]> shapes = new Vector<>();
+               Vector<Instance> instances = new Vector<>();
+               for (Object element : selected) {
+                  if (element instanceof Instance) {
+                     instances.add((Instance) element);
+                  } else {
+                     shapes.add((V3[]) element);
+                  }
+               }
+               CANVAS.setShapes(shapes.toArray(new V3[0][]));
+               CANVAS.setInstances(instances.toArray(new Instance[0]));
             }
          }
       };
@@ -145,39 +268,130 @@ class Listeners {
     * Creates an action listener for the "Insert" button.
     * This listener reads the x, y, and z coordinates from the input fields,
     * creates a new V3 vector, and adds it to the list of vectors.
+    * With no valid coordinates, it asks for a point file (XYZ or CSV) instead and imports it
+    * in the background, adding the points to the list one chunk at a time. A file of more
+    * than LIST_LIMIT points is drawn as a point cloud once it is read instead, without the
+    * list, as the "Open" button does for large scenes.
+    * A second press while a file is being imported cancels it.
     * 
     * @return The created ActionListener object.
     */
    protected static ActionListener createInsertVectorListener() {
-      return e -> {
-         // Get the x, y, and z coordinate strings from the input fields
-         String x = Window._x.getText(), y = Window._y.getText(), z = Window._z.getText();
+      return new ActionListener() {
+         private PointImporter importer;
 
-         // Validate the input strings
-         if (validateInput(x) && validateInput(y) && validateInput(z)) {
-            // Create a new V3 vector from the validated coordinates
-            Window.vectors.add(new V3(Double.parseDouble(x), Double.parseDouble(y), Double.parseDouble(z)));
-            // Update the JList with the new vector
-            Window.appendVectors();
-            
-            // Clear the input fields
-            Window._x.setText("");
-            Window._y.setText("");
-            Window._z.setText("");
-            return;
-         }
+         @Override
+         public void actionPerformed(ActionEvent e) {
+            // Get the x, y, and z coordinate strings from the input fields
+            String x = Window._x.getText(), y = Window._y.getText(), z = Window._z.getText();
 
-         try (BufferedReader br = new BufferedReader(new FileReader("test.txt"))) {
-            // test for tsa method
-            String line;
-            while ((line = br.readLine()) != null) {
-               String[] parts = line.split(" ");
-               Window.vectors.add(
-                     new V3(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), Double.parseDouble(parts[2])));
+            // Validate the input strings
+            if (validateInput(x) && validateInput(y) && validateInput(z)) {
+               // Create a new V3 vector from the validated coordinates
+               Window.vectors.add(new V3(Double.parseDouble(x), Double.parseDouble(y), Double.parseDouble(z)));
+               // Update the JList with the new vector
                Window.appendVectors();
+               JOURNAL.reset();
+               
+               // Clear the input fields
+               Window._x.setText("");
+               Window._y.setText("");
+               Window._z.setText("");
+               return;
+            }
+
+            // A second press cancels the running import
+            if (importer != null) {
+               importer.cancel();
+               return;
             }
-         } catch (IOException q) {
-            q.printStackTrace();
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(CANVAS) != JFileChooser.APPROVE_OPTION) {
+               return;
+            }
+            importPoints(chooser.getSelectedFile());
+         }
+
+         private void importPoints(File file) {
+            PointImporter points = new PointImporter();
+            importer = points;
+            importing++;
+
+            COMPUTE.io(new SwingWorker<Imported, V3[]>() {
+               // Chunks read in the background, and the number of points in them
+               private final List<VertexBuffer> read = new ArrayList<>();
+               private long count;
+
+               // Position in Window.vectors of the first listed point, and the number listed
+               private final int base = Window.vectors.size();
+               private int listed;
+               private final ListRows rows = new ListRows(Window.vectors);
+
+               @Override
+               protected Imported doInBackground() throws Exception {
+                  try (InputStream in = new FileInputStream(file)) {
+                     points.read(in, this::collect);
+                  }
+                  if (count <= LIST_LIMIT) {
+                     return null;
+                  }
+                  // Too many to list: one packed buffer for the cloud, and the chunks can
+                  // be collected before the octree over it is built
+                  VertexBuffer cloud = concat(read);
+                  read.clear();
+                  return new Imported(cloud, Octree.of(cloud));
+               }
+
+               /**
+                * Publishes a chunk to be listed while the file has no more than LIST_LIMIT
+                * points, and only the progress after that.
+                */
+               private void collect(VertexBuffer chunk) {
+                  read.add(chunk);
+                  count += chunk.size();
+                  publish(count <= LIST_LIMIT ? chunk.toArray() : new V3[0]);
+               }
+
+               @Override
+               protected void process(List<V3[]> chunks) {
+                  int from = Window.vectors.size();
+                  for (V3[] chunk : chunks) {
+                     Window.vectors.addAll(Arrays.asList(chunk));
+                     listed += chunk.length;
+                  }
+                  // Only the new rows are added to the list, which is not rebuilt
+                  if (from < Window.vectors.size()) {
+                     if (Window.list.getModel() != rows) {
+                        Window.list.setModel(rows);
+                     }
+                     rows.appended(from);
+                  }
+                  CANVAS.setStatus(String.format("Importing %s: %,d points", file.getName(), points.points()));
+               }
+
+               @Override
+               protected void done() {
+                  try {
+                     Imported cloud = get();
+                     if (cloud != null) {
+                        // Take the points listed so far out again, the cloud has them all
+                        Window.vectors.subList(base, base + listed).clear();
+                        Window.appendVectors();
+                        CANVAS.setShapes(null);
+                        CANVAS.setInstances(null);
+                        CANVAS.setVectorBuffer(cloud.points, cloud.tree);
+                     }
+                     CANVAS.setStatus(String.format("Imported %s: %,d points%s, %,d lines skipped", file.getName(),
+                           points.points(), points.isCancelled() ? " (cancelled)" : "", points.skipped()));
+                  } catch (InterruptedException | ExecutionException ex) {
+                     CANVAS.setStatus("Import of " + file.getName() + " failed: " + ex.getMessage());
+                  }
+                  importer = null;
+                  importing--;
+                  JOURNAL.reset();
+               }
+            });
+            CANVAS.setStatus("Importing " + file.getName());
          }
       };
    }
@@ -198,13 +412,17 @@ class Listeners {
          double dz = validateInput(z) ? Double.parseDouble(z) : 0;
 
          // Apply translations to vectors or shapes
-         if (CANVAS._vectors != null) {
-            applyTranslations(CANVAS._vectors, dx, dy, dz);
+         if (!begin(Operation.TRANSLATE, dx, dy, dz)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            applyTranslations(CANVAS.vectorData, dx, dy, dz);
          }
-         if (CANVAS._shapes != null) {
-            for (V3[] shape : CANVAS._shapes) {
+         if (CANVAS.shapeData != null) {
+            for (VertexBuffer shape : CANVAS.shapeData) {
                applyTranslations(shape, dx, dy, dz);
             }
+            animateInstances(translation(dx, dy, dz));
          }
       };
    }
@@ -226,12 +444,16 @@ class Listeners {
          double f = Double.parseDouble(input);
 
          // Apply scaling to vectors or shapes
-         if (CANVAS._vectors != null) {
-            applyScales(CANVAS._vectors, f);
-         } else if (CANVAS._shapes != null) {
-            for (V3[] aux : CANVAS._shapes) {
+         if (!begin(Operation.SCALE, f, 0, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            applyScales(CANVAS.vectorData, f);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
                applyScales(aux, f);
             }
+            animateInstances(scaling(f));
          }
       };
    }
@@ -245,12 +467,16 @@ class Listeners {
    protected static ActionListener createProjXYListener() {
       return e -> {
          // Apply XY projection to vectors or shapes
-         if (CANVAS._vectors != null) {
-            applyProjections(CANVAS._vectors, Utils.projXY);
-         } else if (CANVAS._shapes != null) {
-            for (V3[] aux : CANVAS._shapes) {
-               applyProjections(aux, Utils.projXY);
+         if (!begin(Operation.PROJECT_XY, 0, 0, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            applyProjections(CANVAS.vectorData, BufferUtils.projXY);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
+               applyProjections(aux, BufferUtils.projXY);
             }
+            animateInstances(projection(BufferUtils.projXY));
          }
       };
    }
@@ -264,12 +490,16 @@ class Listeners {
    protected static ActionListener createProjXZListener() {
       return e -> {
          // Apply XZ projection to vectors or shapes
-         if (CANVAS._vectors != null) {
-            applyProjections(CANVAS._vectors, Utils.projXZ);
-         } else if (CANVAS._shapes != null) {
-            for (V3[] aux : CANVAS._shapes) {
-               applyProjections(aux, Utils.projXZ);
+         if (!begin(Operation.PROJECT_XZ, 0, 0, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            applyProjections(CANVAS.vectorData, BufferUtils.projXZ);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
+               applyProjections(aux, BufferUtils.projXZ);
             }
+            animateInstances(projection(BufferUtils.projXZ));
          }
       };
    }
@@ -283,12 +513,16 @@ class Listeners {
    protected static ActionListener createProjYZListener() {
       return e -> {
          // Apply YZ projection to vectors or shapes
-         if (CANVAS._vectors != null) {
-            applyProjections(CANVAS._vectors, Utils.projYZ);
-         } else if (CANVAS._shapes != null) {
-            for (V3[] aux : CANVAS._shapes) {
-               applyProjections(aux, Utils.projYZ);
+         if (!begin(Operation.PROJECT_YZ, 0, 0, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            applyProjections(CANVAS.vectorData, BufferUtils.projYZ);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
+               applyProjections(aux, BufferUtils.projYZ);
             }
+            animateInstances(projection(BufferUtils.projYZ));
          }
       };
    }
@@ -302,12 +536,16 @@ class Listeners {
    protected static ActionListener createRefXListener() {
       return e -> {
          // Apply reflection across X-axis to vectors or shapes
-         if (CANVAS._vectors != null) {
-            applyReflections(CANVAS._vectors, Utils.refX);
-         } else if (CANVAS._shapes != null) {
-            for (V3[] aux : CANVAS._shapes) {
-               applyReflections(aux, Utils.refX);
+         if (!begin(Operation.REFLECT_X, 0, 0, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            applyReflections(CANVAS.vectorData, BufferUtils.refX);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
+               applyReflections(aux, BufferUtils.refX);
             }
+            animateInstances(reflection(BufferUtils.refX));
          }
       };
    }
@@ -321,12 +559,16 @@ class Listeners {
    protected static ActionListener createRefYListener() {
       return e -> {
          // Apply reflection across Y-axis to vectors or shapes
-         if (CANVAS._vectors != null) {
-            applyReflections(CANVAS._vectors, Utils.refY);
-         } else if (CANVAS._shapes != null) {
-            for (V3[] aux : CANVAS._shapes) {
-               applyReflections(aux, Utils.refY);
+         if (!begin(Operation.REFLECT_Y, 0, 0, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            applyReflections(CANVAS.vectorData, BufferUtils.refY);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
+               applyReflections(aux, BufferUtils.refY);
             }
+            animateInstances(reflection(BufferUtils.refY));
          }
       };
    }
@@ -340,12 +582,16 @@ class Listeners {
    protected static ActionListener createRefZListener() {
       return e -> {
          // Apply reflection across Z-axis to vectors or shapes
-         if (CANVAS._vectors != null) {
-            applyReflections(CANVAS._vectors, Utils.refZ);
-         } else if (CANVAS._shapes != null) {
-            for (V3[] aux : CANVAS._shapes) {
-               applyReflections(aux, Utils.refZ);
+         if (!begin(Operation.REFLECT_Z, 0, 0, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            applyReflections(CANVAS.vectorData, BufferUtils.refZ);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
+               applyReflections(aux, BufferUtils.refZ);
             }
+            animateInstances(reflection(BufferUtils.refZ));
          }
       };
    }
@@ -360,22 +606,9 @@ class Listeners {
     */
    protected static ActionListener createRotateListener() {
       return new ActionListener() {
-         // Flag to track whether the idle animation is running
-         boolean flag = true;
-         
-         // Timer for the idle animation
-         Timer idle = new Timer(INTERVAL, new ActionListener() {
-            int curr = 0;
-
-            @Override
-            public void actionPerformed(ActionEvent e) {
-               // Rotate the canvas around the Z-axis
-               CANVAS.setAngleZ(curr++ * 0.04);
-               CANVAS.updateVectors();
-               CANVAS.updateShapes();
-               CANVAS.updateGridLines();
-            }
-         });
+         // The idle animation while it is running, and the frame it stopped at
+         AnimationManager.Tween idle;
+         int curr = 0;
 
          @Override
          public void actionPerformed(ActionEvent e) {
@@ -387,23 +620,29 @@ class Listeners {
 
             // Check if the angles are all zero (idle animation)
             if (angleX == angleY && angleY == angleZ && angleZ == 0) {
-               if (flag) {
-                  // Start the idle animation
-                  idle.start();
+               if (idle == null) {
+                  // Start the idle animation, rotating the canvas around the Z-axis
+                  idle = ANIMATIONS.loop(AnimationManager.Target.CAMERA, t -> CANVAS.setAngleZ(curr++ * 0.04));
                } else {
                   // Stop the idle animation
-                  idle.stop();
+                  idle.cancel();
+                  idle = null;
                }
-               // Toggle the animation flag
-               flag = !flag;
-            } else if (CANVAS._vectors != null) {
+            } else if (CANVAS.vectorData != null) {
                // Apply rotations to vectors
-               applyRotations(CANVAS._vectors, angleX, angleY, angleZ);
-            } else if (CANVAS._shapes != null) {
+               if (!begin(Operation.ROTATE, angleX, angleY, angleZ)) {
+                  return;
+               }
+               applyRotations(CANVAS.vectorData, angleX, angleY, angleZ);
+            } else if (CANVAS.shapeData != null) {
                // Apply rotations to shapes
-               for (V3[] aux : CANVAS._shapes) {
+               if (!begin(Operation.ROTATE, angleX, angleY, angleZ)) {
+                  return;
+               }
+               for (VertexBuffer aux : CANVAS.shapeData) {
                   applyRotations(aux, angleX, angleY, angleZ);
                }
+               animateInstances(rotation(angleX, angleY, angleZ));
             }
          }
       };
@@ -424,13 +663,17 @@ class Listeners {
          double factorY = validateInput(y) ? Double.parseDouble(y) : 0;
 
          // Apply shearing along X-axis to vectors or shapes
-         if (CANVAS._vectors != null) {
-            V3[] aux = CANVAS._vectors;
-            applyShears(aux, Utils.shearOnX, factorY, factorZ);
-         } else {
-            for (V3[] aux : CANVAS._shapes) {
-               applyShears(aux, Utils.shearOnX, factorY, factorZ);
+         if (!begin(Operation.SHEAR_X, factorY, factorZ, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            VertexBuffer aux = CANVAS.vectorData;
+            applyShears(aux, BufferUtils.shearOnX, factorY, factorZ);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
+               applyShears(aux, BufferUtils.shearOnX, factorY, factorZ);
             }
+            animateInstances(shearing(BufferUtils.shearOnX, factorY, factorZ));
          }
       };
    }
@@ -450,13 +693,17 @@ class Listeners {
          double factorZ = validateInput(z) ? Double.parseDouble(z) : 0;
 
          // Apply shearing along Y-axis to vectors or shapes
-         if (CANVAS._vectors != null) {
-            V3[] aux = CANVAS._vectors;
-            applyShears(aux, Utils.shearOnY, factorX, factorZ);
-         } else {
-            for (V3[] aux : CANVAS._shapes) {
-               applyShears(aux, Utils.shearOnY, factorX, factorZ);
+         if (!begin(Operation.SHEAR_Y, factorX, factorZ, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            VertexBuffer aux = CANVAS.vectorData;
+            applyShears(aux, BufferUtils.shearOnY, factorX, factorZ);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
+               applyShears(aux, BufferUtils.shearOnY, factorX, factorZ);
             }
+            animateInstances(shearing(BufferUtils.shearOnY, factorX, factorZ));
          }
       };
    }
@@ -476,13 +723,17 @@ class Listeners {
          double factorY = validateInput(y) ? Double.parseDouble(y) : 0;
 
          // Apply shearing along Z-axis to vectors or shapes
-         if (CANVAS._vectors != null) {
-            V3[] aux = CANVAS._vectors;
-            applyShears(aux, Utils.shearOnZ, factorX, factorY);
-         } else {
-            for (V3[] aux : CANVAS._shapes) {
-               applyShears(aux, Utils.shearOnZ, factorX, factorY);
+         if (!begin(Operation.SHEAR_Z, factorX, factorY, 0)) {
+            return;
+         }
+         if (CANVAS.vectorData != null) {
+            VertexBuffer aux = CANVAS.vectorData;
+            applyShears(aux, BufferUtils.shearOnZ, factorX, factorY);
+         } else if (CANVAS.shapeData != null) {
+            for (VertexBuffer aux : CANVAS.shapeData) {
+               applyShears(aux, BufferUtils.shearOnZ, factorX, factorY);
             }
+            animateInstances(shearing(BufferUtils.shearOnZ, factorX, factorY));
          }
       };
    }
@@ -495,10 +746,8 @@ class Listeners {
     */
    protected static ActionListener createSphereListener() {
       return e -> {
-         // Add a sphere shape to the list of shapes
-         Window.shapes.add(Shape.SPHERE.getVectors());
-         // Update the JList with the new sphere shape
-         Window.appendShapes();
+         // Add an instance of the shared sphere mesh to the list of shapes
+         addInstance(Shape.SPHERE);
       };
    }
 
@@ -510,10 +759,8 @@ class Listeners {
     */
    protected static ActionListener createCubeListener() {
       return e -> {
-         // Add a cube shape to the list of shapes
-         Window.shapes.add(Shape.CUBE.getVectors());
-         // Update the JList with the new cube shape
-         Window.appendShapes();
+         // Add an instance of the shared cube mesh to the list of shapes
+         addInstance(Shape.CUBE);
       };
    }
 
@@ -525,171 +772,766 @@ class Listeners {
     */
    protected static ActionListener createPyramidListener() {
       return e -> {
-         // Add a pyramid shape to the list of shapes
-         Window.shapes.add(Shape.PYRAMID.getVectors());
-         // Update the JList with the new pyramid shape
-         Window.appendShapes();
+         // Add an instance of the shared pyramid mesh to the list of shapes
+         addInstance(Shape.PYRAMID);
       };
    }
 
    /**
-    * Creates an action listener for the "TSA" button.
-    * This listener implements the Travelling Salesman Algorithm (TSA)
-    * to find the shortest path that visits all the selected vectors.
+    * Adds an instance of a shape to the list of shapes once its shared mesh is available.
+    * A mesh that is not cached yet is generated in the background.
+    * 
+    * @param shape The shape to add.
+    */
+   private static void addInstance(Shape shape) {
+      COMPUTE.cpu(shape + " mesh", () -> Instance.of(shape), instance -> {
+         Window.shapes.add(instance);
+         // Update the JList with the new shape
+         Window.appendShapes();
+         JOURNAL.reset();
+      });
+   }
+
+   /**
+    * Creates an action listener for the "Save" button.
+    * This listener writes every vector and shape of the GUI lists, and a point cloud shown
+    * without them, to a scene file chosen by the user, in the background.
     * 
     * @return The created ActionListener object.
     */
-   protected static ActionListener createTravellingSalesmanListener() {
-      return new ActionListener() {
-         /**
-          * Calculates the total distance of a path represented by a sequence of indexes
-          * based on a distance matrix.
-          * 
-          * @param indexes The sequence of indexes representing the path.
-          * @param distances The distance matrix where distances[i][j] is the distance between
-          *                  the i-th and j-th vectors.
-          * @return The total distance of the path.
-          */
-         double totalDistance(int[] indexes, double[][] distances) {
-            double total = 0;
-
-            // Iterate over the indexes and sum the distances between consecutive vectors
-            for (int i = 0; i < distances.length - 1; i++) {
-               total += distances[indexes[i]][indexes[i + 1]];
+   protected static ActionListener createSaveSceneListener() {
+      return e -> {
+         JFileChooser chooser = new JFileChooser();
+         if (chooser.showSaveDialog(CANVAS) != JFileChooser.APPROVE_OPTION) {
+            return;
+         }
+         Path file = chooser.getSelectedFile().toPath();
+         // Commit running transformations, then pack the scene here, while nothing changes it
+         ANIMATIONS.finishAll();
+         List<VertexBuffer> vectors = new ArrayList<>();
+         vectors.add(VertexBuffer.of(Window.vectors.toArray(new V3[0])));
+         if (CANVAS._vectors == null && CANVAS.vectorData != null) {
+            vectors.add(CANVAS.vectorData.copy());
+         }
+         List<Object> shapes = new ArrayList<>();
+         for (Object shape : Window.shapes) {
+            shapes.add(shape instanceof Instance ? shape : VertexBuffer.of((V3[]) shape));
+         }
+
+         COMPUTE.io(new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+               SceneFile.write(file, vectors, shapes);
+               return null;
             }
-            // Add the distance from the last vector back to the first vector
-            total += distances[indexes[distances[0].length - 1]][0];
-            return total;
+
+            @Override
+            protected void done() {
+               try {
+                  get();
+                  CANVAS.setStatus("Saved " + file.getFileName());
+               } catch (InterruptedException | ExecutionException ex) {
+                  CANVAS.setStatus("Saving " + file.getFileName() + " failed: " + ex.getMessage());
+               }
+            }
+         });
+      };
+   }
+
+   /**
+    * Creates an action listener for the "Open" button.
+    * This listener replaces the vectors and shapes of the GUI lists with those of a scene
+    * file chosen by the user, which is memory-mapped in the background. Vector sets of more
+    * than LIST_LIMIT points in total are drawn straight from the loaded buffers instead of
+    * being listed, so that large point clouds never become V3 objects.
+    * 
+    * @return The created ActionListener object.
+    */
+   protected static ActionListener createOpenSceneListener() {
+      return e -> {
+         JFileChooser chooser = new JFileChooser();
+         if (chooser.showOpenDialog(CANVAS) != JFileChooser.APPROVE_OPTION) {
+            return;
          }
+         Path file = chooser.getSelectedFile().toPath();
 
-         /**
-          * Generates all permutations of a given array of integers.
-          * 
-          * @param elements The array of integers to permute.
-          * @return A 2D array where each row represents a permutation of the input array.
-          */
-         int[][] permut(int[] elements) {
-            int n = elements.length, fat = 1, i = 0, count = 0;
-            int[] indexes = new int[n];
-
-            // Calculate the factorial of n
-            for (int j = n; j > 1; j--) {
-               fat *= j;
+         COMPUTE.io(new SwingWorker<SceneFile.Scene, Void>() {
+            @Override
+            protected SceneFile.Scene doInBackground() throws Exception {
+               return SceneFile.read(file);
             }
 
-            // Create a 2D array to store the permutations
-            int[][] permutations = new int[fat][n];
-            permutations[count++] = elements;
-
-            // Generate the permutations
-            while (i < n) {
-               if (indexes[i] < i) {
-                  // Swap elements and generate a new permutation
-                  swap(elements, i % 2 == 0 ? 0 : indexes[i], i);
-                  permutations[count++] = elements;
-                  indexes[i]++;
-                  i = 0;
+            @Override
+            protected void done() {
+               SceneFile.Scene scene;
+               try {
+                  scene = get();
+               } catch (InterruptedException | ExecutionException ex) {
+                  CANVAS.setStatus("Opening " + file.getFileName() + " failed: " + ex.getMessage());
+                  return;
+               }
+               ANIMATIONS.finishAll();
+               Window.shapes.clear();
+               for (Object shape : scene.shapes) {
+                  Window.shapes.add(shape instanceof Instance ? shape : ((VertexBuffer) shape).toArray());
+               }
+               Window.appendShapes();
+               Window.vectors.clear();
+               long count = scene.vectorCount();
+               if (count <= LIST_LIMIT) {
+                  for (VertexBuffer set : scene.vectors) {
+                     Window.vectors.addAll(Arrays.asList(set.toArray()));
+                  }
+                  Window.appendVectors();
                } else {
-                  indexes[i++] = 0;
+                  // Too many to list: draw the cloud from one packed buffer
+                  Window.appendVectors();
+                  CANVAS.setShapes(null);
+                  CANVAS.setInstances(null);
+                  CANVAS.setVectorBuffer(concat(scene.vectors));
                }
+               JOURNAL.reset();
+               CANVAS.setStatus(String.format("Opened %s: %,d vectors, %,d shapes",
+                     file.getFileName(), count, scene.shapes.size()));
             }
-            // Return the array of permutations
-            return permutations;
+         });
+      };
+   }
+
+   /**
+    * Creates an action listener for the "Undo" button.
+    * This listener reverts the last recorded transformation of vectors or shapes.
+    * 
+    * @return The created ActionListener object.
+    */
+   protected static ActionListener createUndoListener() {
+      return e -> {
+         if (busy()) {
+            return;
+         }
+         // Commit running transformations, they are part of the history being undone
+         ANIMATIONS.finishAll();
+         if (JOURNAL.undo()) {
+            refreshScene();
+         } else {
+            CANVAS.setStatus("Nothing to undo");
+         }
+      };
+   }
+
+   /**
+    * Creates an action listener for the "Redo" button.
+    * This listener applies the last undone transformation of vectors or shapes again.
+    * 
+    * @return The created ActionListener object.
+    */
+   protected static ActionListener createRedoListener() {
+      return e -> {
+         if (busy()) {
+            return;
+         }
+         ANIMATIONS.finishAll();
+         if (JOURNAL.redo()) {
+            refreshScene();
+         } else {
+            CANVAS.setStatus("Nothing to redo");
          }
+      };
+   }
 
-         /**
-          * Swaps two elements in an array of integers.
-          * 
-          * @param elements The array of integers.
-          * @param a The index of the first element to swap.
-          * @param b The index of the second element to swap.
-          */
-         void swap(int[] elements, int a, int b) {
-            int temp = elements[a];
-            elements[a] = elements[b];
-            elements[b] = temp;
+   /**
+    * Creates an action listener for the "Restore" button.
+    * This listener replaces the vectors and shapes of the GUI lists with the scene the
+    * previous session left in the journal directory, including its undo history.
+    * 
+    * @return The created ActionListener object.
+    */
+   protected static ActionListener createRestoreListener() {
+      return e -> {
+         if (busy()) {
+            return;
          }
+         ANIMATIONS.finishAll();
+         try {
+            JOURNAL.recover();
+         } catch (IOException ex) {
+            CANVAS.setStatus("Restore failed: " + ex.getMessage());
+            return;
+         }
+         CANVAS.setVectors(null);
+         CANVAS.setShapes(null);
+         CANVAS.setInstances(null);
+         Window.appendShapes();
+         Window.appendVectors();
+         CANVAS.setStatus(String.format("Restored %,d vectors, %,d shapes at step %d",
+               Window.vectors.size(), Window.shapes.size(), JOURNAL.position()));
+      };
+   }
+
+   /**
+    * Prepares a transformation of the elements selected in the GUI list, and records it in
+    * the journal before it is applied. Nothing is recorded for a point cloud drawn without
+    * the list.
+    * 
+    * @param op The transformation.
+    * @param a The first parameter of the transformation.
+    * @param b The second parameter of the transformation.
+    * @param c The third parameter of the transformation.
+    * @return False if the transformation must not start, because another one is still
+    *         being computed in the background.
+    */
+   private static boolean begin(Operation op, double a, double b, double c) {
+      if (busy()) {
+         return false;
+      }
+      // The journal reads the lists, so earlier transformations must be committed to them
+      ANIMATIONS.finishAll();
+      boolean shapes = CANVAS.vectorData == null;
+      recorded = -1;
+      if (!shapes && CANVAS._vectors == null) {
+         return true;
+      }
+      JOURNAL.record(op, a, b, c, shapes, Window.list.getSelectedIndices());
+      recorded = JOURNAL.position();
+      if (JOURNAL.failure() != null && !journalFailureReported) {
+         journalFailureReported = true;
+         CANVAS.setStatus("Journal no longer saved: " + JOURNAL.failure().getMessage());
+      }
+      return true;
+   }
+
+   /**
+    * Returns whether a transformation is being computed in the background, or a point file
+    * is being imported, showing so in the status line. The scene must not be transformed
+    * again, or its history moved, until the result has been swapped in. Neither must it
+    * while points are imported, as the journal only snapshots them once the import is done.
+    * 
+    * @return True if a transformation or an import is running in the background.
+    */
+   private static boolean busy() {
+      if (transforming == 0 && importing == 0) {
+         return false;
+      }
+      CANVAS.setStatus(transforming > 0 ? "Still transforming, try again when it is done"
+            : "Still importing, try again when it is done");
+      return true;
+   }
+
+   /**
+    * Shows the vectors and shapes on the canvas again after the journal changed them in the lists.
+    */
+   private static void refreshScene() {
+      if (CANVAS._vectors != null) {
+         CANVAS.setVectors(CANVAS._vectors);
+      }
+      if (CANVAS._shapes != null) {
+         CANVAS.setShapes(CANVAS._shapes);
+      }
+      if (CANVAS.instances != null) {
+         CANVAS.setInstances(CANVAS.instances);
+      }
+      Window.list.repaint();
+   }
+
+   /**
+    * Returns the directory named by the journal.dir system property.
+    * 
+    * @return The directory, or null to keep the journal in memory only.
+    */
+   private static Path journalDir() {
+      String dir = System.getProperty("journal.dir");
+      return dir == null || dir.isEmpty() ? null : Paths.get(dir);
+   }
+
+   /**
+    * Concatenates packed vector sets into one buffer.
+    * 
+    * @param sets The vector sets.
+    * @return A buffer with the points of all sets, in order.
+    */
+   private static VertexBuffer concat(List<VertexBuffer> sets) {
+      if (sets.size() == 1) {
+         return sets.get(0);
+      }
+      int n = 0;
+      for (VertexBuffer set : sets) {
+         n += set.size();
+      }
+      VertexBuffer all = new VertexBuffer(n);
+      int offset = 0;
+      for (VertexBuffer set : sets) {
+         System.arraycopy(set.x, 0, all.x, offset, set.size());
+         System.arraycopy(set.y, 0, all.y, offset, set.size());
+         System.arraycopy(set.z, 0, all.z, offset, set.size());
+         offset += set.size();
+      }
+      return all;
+   }
+
+   /**
+    * Creates an action listener for the "TSA" button.
+    * This listener solves the Travelling Salesman Problem (TSA)
+    * to find a shortest closed path that visits all the selected vectors.
+    * Up to TspSolver.EXACT_LIMIT vectors the path is optimal; above that it is found
+    * by local search within TSP_BUDGET milliseconds. The search runs in the background;
+    * pressing the button again while it runs cancels it.
+    * 
+    * @return The created ActionListener object.
+    */
+   protected static ActionListener createTravellingSalesmanListener() {
+      return new ActionListener() {
+         private SwingWorker<int[], Void> search;
 
          @Override
          public void actionPerformed(ActionEvent e) {
-            // Check if there are any vectors selected
-            if (CANVAS._vectors == null) {
+            // A second press cancels the running search
+            if (search != null && !search.isDone()) {
+               search.cancel(true);
+               CANVAS.setStatus("TSA cancelled");
                return;
             }
-            // Get the number of vectors
-            int n = CANVAS._vectors.length;
-            // Create a distance matrix to store the distances between vectors
-            double[][] distances = new double[n][n];
-
-            // Calculate the distances between all pairs of vectors
-            for (int i = 0; i < n; i++) {
-               for (int j = 1; j < n; j++) {
-                  distances[i][j] = Math.sqrt(
-                        Math.pow((CANVAS._vectors[j].x - CANVAS._vectors[i].x), 2) +
-                              Math.pow((CANVAS._vectors[j].y - CANVAS._vectors[i].y), 2) +
-                              Math.pow((CANVAS._vectors[j].z - CANVAS._vectors[i].z), 2));
-               }
+            // Check if there are any vectors selected
+            if (CANVAS.vectorData == null) {
+               return;
             }
+            V3[] vectors = shownVectors();
+            VertexBuffer points = CANVAS.vectorData.copy();
+            CANVAS.setStatus(String.format("TSA: searching %,d vectors", points.size()));
+            // Find the shortest path through the vectors, then display it on the canvas
+            search = COMPUTE.cpu("TSA", () -> TspSolver.solve(points, TSP_BUDGET), shortestPath -> {
+               showPath(vectors, shortestPath);
+               CANVAS.setStatus(null);
+            });
+         }
+      };
+   }
+
+   /**
+    * Creates an action listener for the "Exact TSA" button.
+    * This listener finds a provably shortest closed path through up to TspBranchAndBound.LIMIT
+    * selected vectors by branch and bound. The search runs in the background on the fork-join
+    * pool, showing every shorter path found and its progress on the canvas while it runs.
+    * Pressing the button again while it runs cancels the search and keeps the best path so far.
+    * 
+    * @return The created ActionListener object.
+    */
+   protected static ActionListener createExactTravellingSalesmanListener() {
+      return new ActionListener() {
+         private TspBranchAndBound solver;
 
-            // Initialize the shortest path and its length
-            int[] shortestPath = new int[n];
-            for (int i = 0; i < n; i++) {
-               shortestPath[i] = i;
+         @Override
+         public void actionPerformed(ActionEvent e) {
+            // A second press cancels the running search
+            if (solver != null) {
+               solver.cancel();
+               return;
             }
-            double shortestLength = Double.MAX_VALUE;
-
-            // Iterate over all permutations of the vectors
-            for (int[] permutation : permut(shortestPath)) {
-               // Calculate the total distance of the current permutation
-               double distance = totalDistance(permutation, distances);
-               // Update the shortest path if the current permutation is shorter
-               if (shortestLength > distance) {
-                  shortestLength = distance;
-                  shortestPath = permutation;
-               }
+            if (CANVAS.vectorData == null) {
+               return;
             }
-
-            // Update the shapes array with the shortest path
-            CANVAS._shapes = new V3[1][n];
-            for (int i = 0; i < n; i++) {
-               CANVAS._shapes[0][i] = CANVAS._vectors[shortestPath[i]];
+            if (CANVAS.vectorData.size() > TspBranchAndBound.LIMIT) {
+               CANVAS.setStatus("Exact TSA supports up to " + TspBranchAndBound.LIMIT + " vectors");
+               return;
             }
-            // Update the canvas to display the shortest path
-            CANVAS.updateShapes();
+            V3[] vectors = shownVectors();
+            TspBranchAndBound search = new TspBranchAndBound(CANVAS.vectorData.copy(),
+                  (tour, length) -> SwingUtilities.invokeLater(() -> showPath(vectors, tour)));
+            solver = search;
+
+            // The search runs on the fork-join pool, this job only waits for it and reports progress
+            COMPUTE.io(new SwingWorker<int[], Void>() {
+               @Override
+               protected int[] doInBackground() throws Exception {
+                  ForkJoinTask<int[]> task = ForkJoinPool.commonPool().submit(search::solve);
+                  // Report progress until the search completes
+                  while (true) {
+                     try {
+                        return task.get(TSP_PROGRESS, TimeUnit.MILLISECONDS);
+                     } catch (TimeoutException timeout) {
+                        CANVAS.setStatus(String.format("Exact TSA: %,d nodes, best %.3f",
+                              search.nodes(), search.bestLength()));
+                     }
+                  }
+               }
+
+               @Override
+               protected void done() {
+                  try {
+                     showPath(vectors, get());
+                     CANVAS.setStatus(String.format("Exact TSA: %s %.3f after %,d nodes",
+                           search.isCancelled() ? "cancelled, best" : "optimal",
+                           search.bestLength(), search.nodes()));
+                  } catch (InterruptedException | ExecutionException ex) {
+                     CANVAS.setStatus("Exact TSA failed: " + ex.getMessage());
+                  }
+                  solver = null;
+               }
+            });
+            CANVAS.setStatus("Exact TSA: searching");
          }
       };
    }
 
    /**
-    * Applies a translation transformation to an array of vectors with animation.
+    * Returns the vectors shown on the canvas as V3 objects, unpacking them if they are
+    * shown without, such as a loaded point cloud.
+    * 
+    * @return The shown vectors.
+    */
+   private static V3[] shownVectors() {
+      return CANVAS._vectors != null ? CANVAS._vectors : CANVAS.vectorData.toArray();
+   }
+
+   /**
+    * Shows a closed path through vectors as the only shape on the canvas.
+    * 
+    * @param vectors The vectors the path visits.
+    * @param tour The indexes of the vectors in the order they are visited.
+    */
+   private static void showPath(V3[] vectors, int[] tour) {
+      V3[] path = new V3[tour.length];
+      for (int i = 0; i < path.length; i++) {
+         path[i] = vectors[tour[i]];
+      }
+      CANVAS.setShapes(new V3[][] { path });
+   }
+
+   /**
+    * Starts an animation of an array of vectors on the shared AnimationManager.
+    * When it completes, the result is written back to the vectors or shapes shown in the GUI.
+    * 
+    * @param vectors The array of vectors to animate.
+    * @param transform The matrix of the transformation the step applies at a given progress.
+    * @param step The animation step, receiving the progress from 0 to 1.
+    */
+   private static void animate(VertexBuffer vectors, DoubleFunction<Matrix4> transform, AnimationManager.Step step) {
+      AnimationManager.Target target = vectors == CANVAS.vectorData
+            ? AnimationManager.Target.VECTORS
+            : AnimationManager.Target.SHAPES;
+      // Shapes carry their bounds along with the matrix of each frame instead of rescanning their points
+      Bounds bounds = CANVAS.boundsOf(vectors);
+      AnimationManager.Step frame = bounds == null ? step : t -> {
+         step.apply(t);
+         CANVAS.setBounds(vectors, bounds.transform(transform.apply(t)));
+      };
+      // The list entries the vectors were selected from, which may be changed before the end
+      V3[] owners = CANVAS._vectors;
+      int[] selection = Window.list.getSelectedIndices();
+      ANIMATIONS.start(target, FRAMES, EASING, frame, () -> {
+         // Update the vectors in the GUI if the animated vectors are the main vectors
+         CANVAS.commit(vectors);
+         if (vectors == CANVAS.vectorData)
+            updateWindowVectors(owners, selection);
+      });
+   }
+
+   /**
+    * Starts an animation of the instances shown on the canvas. Their meshes are shared and
+    * never touched, every frame only replaces each instance's matrix.
+    * 
+    * @param transform The matrix of the transformation at a given progress.
+    */
+   private static void animateInstances(DoubleFunction<Matrix4> transform) {
+      Instance[] instances = CANVAS.instances;
+      if (instances == null || instances.length == 0) {
+         return;
+      }
+      Matrix4[] start = new Matrix4[instances.length];
+      for (int i = 0; i < instances.length; i++) {
+         start[i] = instances[i].transform;
+      }
+      ANIMATIONS.start(AnimationManager.Target.SHAPES, FRAMES, EASING, t -> {
+         Matrix4 frame = transform.apply(t);
+         for (int i = 0; i < instances.length; i++) {
+            instances[i].transform = start[i].then(frame);
+         }
+      }, Window.list::repaint);
+   }
+
+   /**
+    * Returns the matrix of a translation at a given progress.
     * 
-    * @param vectors The array of vectors to translate.
     * @param dx The translation along the X-axis.
     * @param dy The translation along the Y-axis.
     * @param dz The translation along the Z-axis.
+    * @return The matrix at each progress from 0 to 1.
     */
-   private static void applyTranslations(V3[] vectors, double dx, double dy, double dz) {
-      // Create a copy of the vectors to preserve the originals during animation
-      V3[] copy = copyVectors(vectors);
-      // Create a timer to animate the translation over a certain number of frames
-      new Timer(INTERVAL, new ActionListener() {
-         int curr = 0;
+   private static DoubleFunction<Matrix4> translation(double dx, double dy, double dz) {
+      return t -> Matrix4.of(BufferUtils.translate, dx * t, dy * t, dz * t);
+   }
+
+   /**
+    * Returns the matrix of a scaling at a given progress, interpolating the factor from 1.
+    * 
+    * @param f The scaling factor.
+    * @return The matrix at each progress from 0 to 1.
+    */
+   private static DoubleFunction<Matrix4> scaling(double f) {
+      return t -> Matrix4.of(BufferUtils.scale, 1 + (f - 1) * t, 0, 0);
+   }
+
+   /**
+    * Returns the matrix of a projection at a given progress, flattening the axis from 1 to 0.
+    * 
+    * @param transform The projection transformation function.
+    * @return The matrix at each progress from 0 to 1.
+    */
+   private static DoubleFunction<Matrix4> projection(BufferTransform transform) {
+      return t -> Matrix4.of(transform, 1 - t, 0, 0);
+   }
+
+   /**
+    * Returns the matrix of a reflection at a given progress, flipping the axis from 1 to -1.
+    * 
+    * @param transform The reflection transformation function.
+    * @return The matrix at each progress from 0 to 1.
+    */
+   private static DoubleFunction<Matrix4> reflection(BufferTransform transform) {
+      return t -> Matrix4.of(transform, 1 - 2 * t, 0, 0);
+   }
+
+   /**
+    * Returns the matrix of a rotation at a given progress: around X, then Y, then Z,
+    * each by its share of the angle.
+    * 
+    * @param ax The rotation angle around the X-axis.
+    * @param ay The rotation angle around the Y-axis.
+    * @param az The rotation angle around the Z-axis.
+    * @return The matrix at each progress from 0 to 1.
+    */
+   private static DoubleFunction<Matrix4> rotation(double ax, double ay, double az) {
+      return t -> Matrix4.compose(
+            Matrix4.of(BufferUtils.rotX, ax * t, 0, 0),
+            Matrix4.of(BufferUtils.rotY, ay * t, 0, 0),
+            Matrix4.of(BufferUtils.rotZ, az * t, 0, 0));
+   }
 
+   /**
+    * Returns the matrix of a shearing at a given progress.
+    * 
+    * @param transform The shearing transformation function.
+    * @param s The shearing factor along the first axis.
+    * @param t The shearing factor along the second axis.
+    * @return The matrix at each progress from 0 to 1.
+    */
+   private static DoubleFunction<Matrix4> shearing(BufferTransform transform, double s, double t) {
+      return p -> Matrix4.of(transform, s * p, t * p, 0);
+   }
+
+   /**
+    * Transforms a buffer too large to animate in the background, and swaps the result into
+    * the canvas when it is complete, instead of animating it frame by frame on the event
+    * dispatch thread. The transformed copy and the octree over it are built by the job.
+    * 
+    * @param vectors vectorData or one of the shapeData buffers.
+    * @param transform The matrix of the transformation at a given progress, applied at 1.
+    * @return False if the buffer is small enough to animate, and nothing was started.
+    */
+   private static boolean transformInBackground(VertexBuffer vectors, DoubleFunction<Matrix4> transform) {
+      if (vectors.size() <= BACKGROUND_LIMIT) {
+         return false;
+      }
+      Matrix4 matrix = transform.apply(1);
+      boolean main = vectors == CANVAS.vectorData;
+      // The V3 objects behind the buffer, updated even if the canvas shows others by the end
+      V3[] owners = main ? CANVAS._vectors : null;
+      for (int i = 0; !main && i < CANVAS.shapeData.length; i++) {
+         if (CANVAS.shapeData[i] == vectors) {
+            owners = CANVAS._shapes[i];
+         }
+      }
+      V3[] targets = owners;
+      int[] selection = Window.list.getSelectedIndices();
+      long start = System.nanoTime();
+      transforming++;
+      CANVAS.setStatus(String.format("Transforming %,d points", vectors.size()));
+      COMPUTE.cpu(new SwingWorker<Transformed, Void>() {
          @Override
-         public void actionPerformed(ActionEvent e) {
-            // Apply the translation incrementally for each frame
-            applyTranslation(vectors, copy, dx / FRAMES * curr, dy / FRAMES * curr, dz / FRAMES * curr);
-            // Stop the timer when all frames are completed
-            if (curr == FRAMES) {
-               ((Timer) e.getSource()).stop();
-               // Update the vectors in the GUI if the translated vectors are the main vectors
-               if (vectors == CANVAS._vectors)
-                  updateWindowVectors(vectors);
+         protected Transformed doInBackground() {
+            VertexBuffer result = new VertexBuffer(vectors.size());
+            ParallelTransform.apply(matrix::apply, vectors, result);
+            return main ? new Transformed(result, Octree.of(result), null) : new Transformed(result, null, Bounds.of(result));
+         }
+
+         @Override
+         protected void done() {
+            transforming--;
+            Transformed transformed;
+            try {
+               transformed = get();
+            } catch (InterruptedException | ExecutionException ex) {
+               transformFailure = ex.getMessage();
+               settleTransformation();
+               return;
+            }
+            if (!CANVAS.replace(vectors, transformed.points, transformed.tree, transformed.bounds) && targets != null) {
+               transformed.points.copyTo(targets);
+            }
+            if (main) {
+               updateWindowVectors(targets, selection);
             } else {
-               curr++;
+               Window.list.repaint();
             }
+            CANVAS.setStatus(String.format("Transformed %,d points in %d ms",
+                  vectors.size(), (System.nanoTime() - start) / 1_000_000));
+            settleTransformation();
          }
-      }).start();
+      });
+      return true;
+   }
+
+   /**
+    * Once the last background job of a transformation is done, undoes the transformation and
+    * drops its journal record if one of its jobs failed, so that the scene is not left partly
+    * transformed and the history does not hold a transformation that was never applied.
+    */
+   private static void settleTransformation() {
+      if (transforming > 0 || transformFailure == null) {
+         return;
+      }
+      String failure = transformFailure;
+      transformFailure = null;
+      // Commit the buffers animated by the same transformation before restoring them
+      ANIMATIONS.finishAll();
+      if (recorded == JOURNAL.position() && JOURNAL.discard()) {
+         refreshScene();
+         CANVAS.setStatus("Transformation failed and was undone: " + failure);
+      } else {
+         CANVAS.setStatus("Transformation failed: " + failure);
+      }
+      recorded = -1;
+   }
+
+   /**
+    * This class is a point cloud imported in the background, to draw without the list.
+    */
+   private static final class Imported {
+      final VertexBuffer points;
+      // Octree over the points
+      final Octree tree;
+
+      Imported(VertexBuffer points, Octree tree) {
+         this.points = points;
+         this.tree = tree;
+      }
+   }
+
+   /**
+    * This class is a list model over a list that grows, announcing the rows appended to it,
+    * so that the GUI list shows new elements without its model being rebuilt.
+    */
+   private static final class ListRows extends AbstractListModel<Object> {
+      private final List<?> elements;
+
+      ListRows(List<?> elements) {
+         this.elements = elements;
+      }
+
+      @Override
+      public int getSize() {
+         return elements.size();
+      }
+
+      @Override
+      public Object getElementAt(int index) {
+         return elements.get(index);
+      }
+
+      /**
+       * Announces the elements appended since the list had a given size.
+       * 
+       * @param from The size of the list before the elements were appended.
+       */
+      void appended(int from) {
+         if (from < elements.size()) {
+            fireIntervalAdded(this, from, elements.size() - 1);
+         }
+      }
+   }
+
+   /**
+    * This class is the result of a transformation computed in the background.
+    */
+   private static final class Transformed {
+      final VertexBuffer points;
+      // Octree over the points, or null if they are a shape
+      final Octree tree;
+      // Bounds of the points if they are a shape, or null
+      final Bounds bounds;
+
+      Transformed(VertexBuffer points, Octree tree, Bounds bounds) {
+         this.points = points;
+         this.tree = tree;
+         this.bounds = bounds;
+      }
+   }
+
+   /**
+    * This class is the transformation of an animation frame, created once per animation and
+    * updated in place every frame, so the frames of an animation allocate nothing.
+    * A single transformation is applied directly with the frame's parameters; a chain is
+    * lowered into one matrix per frame and applied in a single pass.
+    */
+   private static final class FrameTransform implements ParallelTransform.RangeTransform {
+      private final BufferTransform[] chain;
+      // Parameters of the current frame, three per transformation
+      private final double[] args;
+      // Matrix of a chain for the current frame, and the buffer it is lowered in
+      private final Matrix4 matrix = Matrix4.identity();
+      private final VertexBuffer basis = new VertexBuffer(4);
+
+      FrameTransform(BufferTransform... chain) {
+         this.chain = chain;
+         args = new double[3 * chain.length];
+      }
+
+      /**
+       * Sets the parameters of a transformation of the chain for the next frame.
+       * 
+       * @param i The index of the transformation in the chain.
+       * @param a The first transformation parameter.
+       * @param b The second transformation parameter.
+       * @param c The third transformation parameter.
+       * @return This transformation, lowered and ready to apply once the last one is set.
+       */
+      FrameTransform set(int i, double a, double b, double c) {
+         args[3 * i] = a;
+         args[3 * i + 1] = b;
+         args[3 * i + 2] = c;
+         if (i == chain.length - 1 && chain.length > 1) {
+            matrix.lower(chain, args, basis);
+         }
+         return this;
+      }
+
+      @Override
+      public void apply(VertexBuffer src, VertexBuffer dst, int from, int to) {
+         if (chain.length == 1) {
+            chain[0].apply(src, dst, from, to, args[0], args[1], args[2]);
+         } else {
+            matrix.apply(src, dst, from, to);
+         }
+      }
+   }
+
+   /**
+    * Applies a translation transformation to an array of vectors with animation.
+    * 
+    * @param vectors The array of vectors to translate.
+    * @param dx The translation along the X-axis.
+    * @param dy The translation along the Y-axis.
+    * @param dz The translation along the Z-axis.
+    */
+   private static void applyTranslations(VertexBuffer vectors, double dx, double dy, double dz) {
+      if (transformInBackground(vectors, translation(dx, dy, dz))) {
+         return;
+      }
+      // Create a copy of the vectors to preserve the originals during animation
+      VertexBuffer copy = vectors.copy();
+      FrameTransform frame = new FrameTransform(BufferUtils.translate);
+      // Apply the translation incrementally for each frame
+      animate(vectors, translation(dx, dy, dz),
+            t -> applyTranslation(vectors, copy, frame, dx * t, dy * t, dz * t));
    }
 
    /**
@@ -697,23 +1539,15 @@ class Listeners {
     * 
     * @param vectors The array of vectors to translate.
     * @param copy The copy of the original vectors.
+    * @param frame The translation of the animation.
     * @param dx The translation along the X-axis for the current frame.
     * @param dy The translation along the Y-axis for the current frame.
     * @param dz The translation along the Z-axis for the current frame.
     */
-   private static void applyTranslation(V3[] vectors, V3[] copy, double dx, double dy, double dz) {
+   private static void applyTranslation(VertexBuffer vectors, VertexBuffer copy, FrameTransform frame,
+         double dx, double dy, double dz) {
       // Apply the translation to each vector
-      for (int i = 0; i < copy.length; i++) {
-         vectors[i].x = copy[i].x + dx;
-         vectors[i].y = copy[i].y + dy;
-         vectors[i].z = copy[i].z + dz;
-      }
-      // Update the canvas to reflect the translated vectors
-      if (vectors == CANVAS._vectors) {
-         CANVAS.updateVectors();
-      } else {
-         CANVAS.updateShapes();
-      }
+      ParallelTransform.apply(frame.set(0, dx, dy, dz), copy, vectors);
    }
 
    /**
@@ -722,28 +1556,16 @@ class Listeners {
     * @param vectors The array of vectors to scale.
     * @param f The scaling factor.
     */
-   private static void applyScales(V3[] vectors, double f) {
+   private static void applyScales(VertexBuffer vectors, double f) {
+      if (transformInBackground(vectors, scaling(f))) {
+         return;
+      }
       // Create a copy of the vectors to preserve the originals during animation
-      V3[] copy = copyVectors(vectors);
-      // Create a timer to animate the scaling over a certain number of frames
-      new Timer(INTERVAL, new ActionListener() {
-         int curr = 0;
-
-         @Override
-         public void actionPerformed(ActionEvent e) {
-            // Apply the scaling incrementally for each frame
-            applyScale(vectors, copy, f, curr);
-            // Stop the timer when all frames are completed
-            if (curr == FRAMES) {
-               ((Timer) e.getSource()).stop();
-               // Update the vectors in the GUI if the scaled vectors are the main vectors
-               if (vectors == CANVAS._vectors)
-                  updateWindowVectors(vectors);
-            } else {
-               curr++;
-            }
-         }
-      }).start();
+      VertexBuffer copy = vectors.copy();
+      FrameTransform frame = new FrameTransform(BufferUtils.scale);
+      // Apply the scaling incrementally for each frame, interpolating the factor from 1
+      animate(vectors, scaling(f),
+            t -> applyScale(vectors, copy, frame, 1 + (f - 1) * t));
    }
 
    /**
@@ -751,23 +1573,12 @@ class Listeners {
     * 
     * @param vectors The array of vectors to scale.
     * @param original The copy of the original vectors.
-    * @param factor The scaling factor.
-    * @param frame The current frame number.
+    * @param frame The scaling of the animation.
+    * @param f The scaling factor for the current frame.
     */
-   private static void applyScale(V3[] vectors, V3[] original, double factor, int frame) {
+   private static void applyScale(VertexBuffer vectors, VertexBuffer original, FrameTransform frame, double f) {
       // Apply the scaling to each vector
-      for (int i = 0; i < vectors.length; i++) {
-         V3 scaled = Utils.scale.apply(original[i], factor);
-         vectors[i].x = original[i].x + (scaled.x - original[i].x) / FRAMES * frame;
-         vectors[i].y = original[i].y + (scaled.y - original[i].y) / FRAMES * frame;
-         vectors[i].z = original[i].z + (scaled.z - original[i].z) / FRAMES * frame;
-      }
-      // Update the canvas to reflect the scaled vectors
-      if (vectors == CANVAS._vectors) {
-         CANVAS.updateVectors();
-      } else {
-         CANVAS.updateShapes();
-      }
+      ParallelTransform.apply(frame.set(0, f, 0, 0), original, vectors);
    }
 
    /**
@@ -776,28 +1587,16 @@ class Listeners {
     * @param vectors The array of vectors to project.
     * @param transform The projection transformation function to apply.
     */
-   private static void applyProjections(V3[] vectors, TransformFunction transform) {
+   private static void applyProjections(VertexBuffer vectors, BufferTransform transform) {
+      if (transformInBackground(vectors, projection(transform))) {
+         return;
+      }
       // Create a copy of the vectors to preserve the originals during animation
-      V3[] copy = copyVectors(vectors);
-      // Create a timer to animate the projection over a certain number of frames
-      new Timer(INTERVAL, new ActionListener() {
-         double curr = 0;
-
-         @Override
-         public void actionPerformed(ActionEvent e) {
-            // Apply the projection incrementally for each frame
-            applyProjection(vectors, copy, transform, 1 - curr / FRAMES);
-            // Stop the timer when all frames are completed
-            if (curr == FRAMES) {
-               ((Timer) e.getSource()).stop();
-               // Update the vectors in the GUI if the projected vectors are the main vectors
-               if (vectors == CANVAS._vectors)
-                  updateWindowVectors(vectors);
-            } else {
-               curr++;
-            }
-         }
-      }).start();
+      VertexBuffer copy = vectors.copy();
+      FrameTransform frame = new FrameTransform(transform);
+      // Apply the projection incrementally for each frame, flattening the axis from 1 to 0
+      animate(vectors, projection(transform),
+            t -> applyProjection(vectors, copy, frame, 1 - t));
    }
 
    /**
@@ -805,20 +1604,12 @@ class Listeners {
     * 
     * @param vectors The array of vectors to project.
     * @param copy The copy of the original vectors.
-    * @param transform The projection transformation function to apply.
+    * @param frame The projection of the animation.
     * @param f The interpolation factor for the current frame.
     */
-   private static void applyProjection(V3[] vectors, V3[] copy, TransformFunction transform, double f) {
+   private static void applyProjection(VertexBuffer vectors, VertexBuffer copy, FrameTransform frame, double f) {
       // Apply the projection to each vector
-      for (int i = 0; i < copy.length; i++) {
-         vectors[i] = transform.apply(copy[i], f);
-      }
-      // Update the canvas to reflect the projected vectors
-      if (vectors == CANVAS._vectors) {
-         CANVAS.updateVectors();
-      } else {
-         CANVAS.updateShapes();
-      }
+      ParallelTransform.apply(frame.set(0, f, 0, 0), copy, vectors);
    }
 
    /**
@@ -827,28 +1618,16 @@ class Listeners {
     * @param vectors The array of vectors to reflect.
     * @param transform The reflection transformation function to apply.
     */
-   private static void applyReflections(V3[] vectors, TransformFunction transform) {
+   private static void applyReflections(VertexBuffer vectors, BufferTransform transform) {
+      if (transformInBackground(vectors, reflection(transform))) {
+         return;
+      }
       // Create a copy of the vectors to preserve the originals during animation
-      V3[] copy = copyVectors(vectors);
-      // Create a timer to animate the reflection over a certain number of frames
-      new Timer(INTERVAL, new ActionListener() {
-         double curr = 0;
-
-         @Override
-         public void actionPerformed(ActionEvent e) {
-            // Apply the reflection incrementally for each frame
-            applyReflection(vectors, copy, transform, 1 - curr / FRAMES);
-            // Stop the timer when all frames are completed
-            if (curr == FRAMES << 1) {
-               ((Timer) e.getSource()).stop();
-               // Update the vectors in the GUI if the reflected vectors are the main vectors
-               if (vectors == CANVAS._vectors)
-                  updateWindowVectors(vectors);
-            } else {
-               curr += 2;
-            }
-         }
-      }).start();
+      VertexBuffer copy = vectors.copy();
+      FrameTransform frame = new FrameTransform(transform);
+      // Apply the reflection incrementally for each frame, flipping the axis from 1 to -1
+      animate(vectors, reflection(transform),
+            t -> applyReflection(vectors, copy, frame, 1 - 2 * t));
    }
 
    /**
@@ -856,68 +1635,33 @@ class Listeners {
     * 
     * @param vectors The array of vectors to reflect.
     * @param copy The copy of the original vectors.
-    * @param transform The reflection transformation function to apply.
+    * @param frame The reflection of the animation.
     * @param f The interpolation factor for the current frame.
     */
-   private static void applyReflection(V3[] vectors, V3[] copy, TransformFunction transform, double f) {
+   private static void applyReflection(VertexBuffer vectors, VertexBuffer copy, FrameTransform frame, double f) {
       // Apply the reflection to each vector
-      for (int i = 0; i < copy.length; i++) {
-         vectors[i] = transform.apply(copy[i], f);
-      }
-      // Update the canvas to reflect the reflected vectors
-      if (vectors == CANVAS._vectors) {
-         CANVAS.updateVectors();
-      } else {
-         CANVAS.updateShapes();
-      }
+      ParallelTransform.apply(frame.set(0, f, 0, 0), copy, vectors);
    }
 
    /**
     * Applies a rotation transformation to an array of vectors with animation.
+    * The rotations around the three axes are fused into one matrix per frame,
+    * so every frame is a single pass over the vectors.
     * 
     * @param vectors The array of vectors to rotate.
     * @param ax The rotation angle around the X-axis.
     * @param ay The rotation angle around the Y-axis.
     * @param az The rotation angle around the Z-axis.
     */
-   private static void applyRotations(V3[] vectors, double ax, double ay, double az) {
-      // Create a copy of the vectors to preserve the originals during
-      V3[] copy = copyVectors(vectors);
-      // Create a timer to animate the rotation over a certain number of frames
-      new Timer(INTERVAL, new ActionListener() {
-         int curr = 0;
-
-         @Override
-         public void actionPerformed(ActionEvent e) {
-            // Apply rotations sequentially for each axis
-            if (curr <= FRAMES) {
-               if (ax == 0) {
-                  curr += FRAMES;
-               } else
-                  applyRotation(vectors, copy, Utils.rotX, ax / FRAMES * curr);
-            } else if (curr <= FRAMES << 1) {
-               if (ay == 0) {
-                  curr += FRAMES;
-               } else
-                  applyRotation(vectors, copy, Utils.rotY, ay / FRAMES * (curr - FRAMES));
-            } else {
-               if (az == 0) {
-                  curr += FRAMES;
-               } else
-                  applyRotation(vectors, copy, Utils.rotZ, az / FRAMES * (curr - (FRAMES << 1)));
-            }
-            // Stop the timer when all frames are completed
-            if (curr == FRAMES * 3) {
-               ((Timer) e.getSource()).stop();
-               // Update the vectors in the GUI if the rotated vectors are the main vectors
-               if (vectors == CANVAS._vectors)
-                  updateWindowVectors(vectors);
-
-            } else {
-               curr++;
-            }
-         }
-      }).start();
+   private static void applyRotations(VertexBuffer vectors, double ax, double ay, double az) {
+      if (transformInBackground(vectors, rotation(ax, ay, az))) {
+         return;
+      }
+      // Create a copy of the vectors to preserve the originals during animation
+      VertexBuffer copy = vectors.copy();
+      FrameTransform frame = new FrameTransform(BufferUtils.rotX, BufferUtils.rotY, BufferUtils.rotZ);
+      // Rotate around X, then Y, then Z, each by its share of the angle for the current frame
+      animate(vectors, rotation(ax, ay, az), t -> applyRotation(vectors, copy, frame, ax * t, ay * t, az * t));
    }
 
    /**
@@ -925,20 +1669,15 @@ class Listeners {
     * 
     * @param vectors The array of vectors to rotate.
     * @param original The copy of the original vectors.
-    * @param rotation The rotation transformation function to apply.
-    * @param angle The rotation angle for the current frame.
+    * @param frame The rotation of the animation, around X, then Y, then Z.
+    * @param ax The rotation angle around the X-axis for the current frame.
+    * @param ay The rotation angle around the Y-axis for the current frame.
+    * @param az The rotation angle around the Z-axis for the current frame.
     */
-   private static void applyRotation(V3[] vectors, V3[] original, TransformFunction rotation, double angle) {
-      // Apply the rotation to each vector
-      for (int i = 0; i < vectors.length; i++) {
-         vectors[i] = rotation.apply(original[i], angle);
-      }
-      // Update the canvas to reflect the rotated vectors
-      if (vectors == CANVAS._vectors) {
-         CANVAS.updateVectors();
-      } else {
-         CANVAS.updateShapes();
-      }
+   private static void applyRotation(VertexBuffer vectors, VertexBuffer original, FrameTransform frame,
+         double ax, double ay, double az) {
+      // Fuse the three rotations into one matrix and apply it to each vector
+      ParallelTransform.apply(frame.set(0, ax, 0, 0).set(1, ay, 0, 0).set(2, az, 0, 0), original, vectors);
    }
 
    /**
@@ -949,28 +1688,16 @@ class Listeners {
     * @param s The shearing factor along the first axis.
     * @param t The shearing factor along the second axis.
     */
-   private static void applyShears(V3[] vectors, TransformFunction transform, double s, double t) {
+   private static void applyShears(VertexBuffer vectors, BufferTransform transform, double s, double t) {
+      if (transformInBackground(vectors, shearing(transform, s, t))) {
+         return;
+      }
       // Create a copy of the vectors to preserve the originals during animation
-      V3[] copy = copyVectors(vectors);
-      // Create a timer to animate the shearing over a certain number of frames
-      new Timer(INTERVAL, new ActionListener() {
-         int curr = 0;
-
-         @Override
-         public void actionPerformed(ActionEvent e) {
-            // Apply the shearing incrementally for each frame
-            applyShear(vectors, copy, transform, s / FRAMES * curr, t / FRAMES * curr);
-            // Stop the timer when all frames are completed
-            if (curr == FRAMES) {
-               ((Timer) e.getSource()).stop();
-               // Update the vectors in the GUI if the sheared vectors are the main vectors
-               if (vectors == CANVAS._vectors)
-                  updateWindowVectors(vectors);
-            } else {
-               curr++;
-            }
-         }
-      }).start();
+      VertexBuffer copy = vectors.copy();
+      FrameTransform frame = new FrameTransform(transform);
+      // Apply the shearing incrementally for each frame
+      animate(vectors, shearing(transform, s, t),
+            p -> applyShear(vectors, copy, frame, s * p, t * p));
    }
 
    /**
@@ -978,21 +1705,13 @@ class Listeners {
     * 
     * @param vectors The array of vectors to shear.
     * @param original The copy of the original vectors.
-    * @param transform The shearing transformation function to apply.
+    * @param frame The shearing of the animation.
     * @param s The shearing factor along the first axis for the current frame.
     * @param t The shearing factor along the second axis for the current frame.
     */
-   private static void applyShear(V3[] vectors, V3[] original, TransformFunction transform, double s, double t) {
+   private static void applyShear(VertexBuffer vectors, VertexBuffer original, FrameTransform frame, double s, double t) {
       // Apply the shearing to each vector
-      for (int i = 0; i < vectors.length; i++) {
-         vectors[i] = transform.apply(original[i], s, t);
-      }
-      // Update the canvas to reflect the sheared vectors
-      if (vectors == CANVAS._vectors) {
-         CANVAS.updateVectors();
-      } else {
-         CANVAS.updateShapes();
-      }
+      ParallelTransform.apply(frame.set(0, s, t, 0), original, vectors);
    }
 
    /**
@@ -1028,32 +1747,24 @@ class Listeners {
     * Updates the vectors displayed in the GUI list based on the modified vectors.
     * 
     * @param vectors The modified array of vectors.
+    * @param selectedIndices The list indexes the vectors were selected from, when they were.
     */
-   private static void updateWindowVectors(V3[] vectors) {
-      if (!Window.vectors.isEmpty()) {
-         int[] selectedIndices = Window.list.getSelectedIndices();
+   private static void updateWindowVectors(V3[] vectors, int[] selectedIndices) {
+      if (vectors != null && !Window.vectors.isEmpty()) {
          // Update the selected vectors in the GUI list
-         for (int i = 0; i < selectedIndices.length; i++) {
-            Window.vectors.set(selectedIndices[i], vectors[i]);
+         for (int i = 0; i < selectedIndices.length && i < vectors.length; i++) {
+            if (selectedIndices[i] < Window.vectors.size()) {
+               Window.vectors.set(selectedIndices[i], vectors[i]);
+            }
+         }
+         if (Arrays.equals(selectedIndices, Window.list.getSelectedIndices())) {
+            // Refresh the GUI list to reflect the changes
+            Window.appendVectors();
+            Window.list.setSelectedIndices(selectedIndices);
+         } else {
+            // The selection changed while they were transformed, keep it and only redraw the list
+            Window.list.repaint();
          }
-         // Refresh the GUI list to reflect the changes
-         Window.appendVectors();
-         Window.list.setSelectedIndices(selectedIndices);
-      }
-   }
-
-   /**
-    * Creates a copy of an array of vectors.
-    * 
-    * @param vectors The array of vectors to copy.
-    * @return The copied array of vectors.
-    */
-   private static V3[] copyVectors(V3[] vectors) {
-      V3[] copy = new V3[vectors.length];
-      // Copy each vector to the new array
-      for (int i = 0; i < vectors.length; i++) {
-         copy[i] = new V3(vectors[i].x, vectors[i].y, vectors[i].z);
       }
-      return copy;
    }
-}
\ No newline at end of file
+}
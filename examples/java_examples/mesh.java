@@ -0,0 +1,223 @@
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class is an indexed mesh: every distinct vertex is stored once, and the wireframe is
+ * a list of edges between vertex indexes, each unique edge listed once. Faces are optional
+ * triangles over the same vertices. A mesh is drawn by transforming and projecting its
+ * vertices once, then drawing one line per edge.
+ */
+class Mesh {
+    // Grid step below which two coordinates are the same when vertices are welded
+    private static final double WELD_STEP = 1e-9;
+
+    final VertexBuffer vertices;
+    // Vertex index pairs, two per edge, and vertex index triples, three per face, or null
+    final int[] edges;
+    final int[] faces;
+
+    /**
+     * Constructs a mesh from indexed vertices.
+     * 
+     * @param vertices The vertices.
+     * @param edges The edges, as pairs of vertex indexes.
+     * @param faces The triangles, as triples of vertex indexes, or null.
+     */
+    Mesh(VertexBuffer vertices, int[] edges, int[] faces) {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.faces = faces;
+    }
+
+    /**
+     * Returns the number of unique edges.
+     * 
+     * @return The number of edges.
+     */
+    int edgeCount() {
+        return edges.length >> 1;
+    }
+
+    /**
+     * Builds a mesh whose vertices, edges and faces may repeat, such as a parametric grid
+     * covering the same points more than once. Vertices equal up to WELD_STEP are merged,
+     * then edges and faces are renumbered; edges and faces that collapse are dropped,
+     * and repeated ones are kept once.
+     * 
+     * @param vertices The vertices, possibly repeated.
+     * @param edges The edges, as pairs of vertex indexes.
+     * @param faces The triangles, as triples of vertex indexes, or null.
+     * @return The welded mesh.
+     */
+    static Mesh weld(VertexBuffer vertices, int[] edges, int[] faces) {
+        int n = vertices.size();
+        // Sort the vertices by their snapped coordinates, so equal ones are adjacent
+        long[][] keys = new long[n][];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = new long[] { snap(vertices.x[i]), snap(vertices.y[i]), snap(vertices.z[i]) };
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compare(keys[a], keys[b]));
+        int[] remap = new int[n];
+        int unique = 0;
+        for (int k = 0; k < n; k++) {
+            if (k > 0 && Arrays.equals(keys[order[k]], keys[order[k - 1]])) {
+                remap[order[k]] = remap[order[k - 1]];
+            } else {
+                remap[order[k]] = unique++;
+            }
+        }
+        // Keep the first vertex of every group, in the order the groups first appear
+        int[] first = new int[unique];
+        Arrays.fill(first, -1);
+        int[] renumber = new int[unique];
+        int next = 0;
+        for (int i = 0; i < n; i++) {
+            if (first[remap[i]] < 0) {
+                first[remap[i]] = i;
+                renumber[remap[i]] = next++;
+            }
+        }
+        VertexBuffer welded = new VertexBuffer(unique);
+        for (int v = 0; v < unique; v++) {
+            int i = first[v];
+            welded.set(renumber[v], vertices.x[i], vertices.y[i], vertices.z[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            remap[i] = renumber[remap[i]];
+        }
+        return new Mesh(welded, unique(edges, 2, remap), faces == null ? null : unique(faces, 3, remap));
+    }
+
+    /**
+     * Renumbers index tuples, drops those with a repeated index and keeps each distinct
+     * set of indexes once, in the order of its first occurrence.
+     * 
+     * @param tuples The tuples, arity indexes each.
+     * @param arity The number of indexes per tuple, at most 3.
+     * @param remap The new index of every old index, each below 2^21.
+     * @return The renumbered, unique tuples.
+     */
+    private static int[] unique(int[] tuples, int arity, int[] remap) {
+        int[] result = new int[tuples.length];
+        Set<Long> seen = new HashSet<>();
+        int size = 0;
+        int[] sorted = new int[arity];
+        for (int t = 0; t < tuples.length; t += arity) {
+            for (int k = 0; k < arity; k++) {
+                sorted[k] = remap[tuples[t + k]];
+            }
+            Arrays.sort(sorted);
+            boolean degenerate = false;
+            long key = 0;
+            for (int k = 0; k < arity; k++) {
+                degenerate |= k > 0 && sorted[k] == sorted[k - 1];
+                key = key << 21 | sorted[k];
+            }
+            if (degenerate || !seen.add(key)) {
+                continue;
+            }
+            for (int k = 0; k < arity; k++) {
+                result[size++] = remap[tuples[t + k]];
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long snap(double value) {
+        // Adding 0.0 turns -0.0 into 0.0
+        return Math.round(value / WELD_STEP + 0.0);
+    }
+}
+
+/**
+ * This class caches the meshes of the predefined shapes by shape and resolution, so that
+ * every instance of the same primitive shares one mesh. The cached meshes are
+ * shared and must never be modified; instances move them through their own transformation.
+ */
+class MeshCache {
+    private static final Map<Shape, Map<Integer, Mesh>> MESHES = new EnumMap<>(Shape.class);
+    private static final Map<Mesh, Bounds> BOUNDS = new IdentityHashMap<>();
+
+    private MeshCache() {
+    }
+
+    /**
+     * Returns the shared mesh of a shape at a resolution, generating it on the first call.
+     * 
+     * @param shape The shape.
+     * @param res The resolution, ignored by shapes without one.
+     * @return The shared, read-only mesh.
+     */
+    static synchronized Mesh get(Shape shape, int res) {
+        return MESHES.computeIfAbsent(shape, s -> new HashMap<>()).computeIfAbsent(res, shape::getMesh);
+    }
+
+    /**
+     * Returns the bounds of a cached mesh, in the mesh's own coordinates.
+     * 
+     * @param mesh A mesh returned by get.
+     * @return The bounds of the mesh.
+     */
+    static synchronized Bounds bounds(Mesh mesh) {
+        return BOUNDS.computeIfAbsent(mesh, m -> Bounds.of(m.vertices));
+    }
+}
+
+/**
+ * This class represents one placed copy of a predefined shape: a reference to its shared
+ * mesh and the transformation that places it in the scene. Transforming an instance
+ * only changes its matrix, the mesh is never copied or modified.
+ */
+class Instance {
+    final Shape shape;
+    final int res;
+    final Mesh mesh;
+
+    // Transformation from the mesh's coordinates to the scene
+    Matrix4 transform = Matrix4.identity();
+
+    /**
+     * Constructs an instance of a shape at a resolution.
+     * 
+     * @param shape The shape.
+     * @param res The resolution of its mesh.
+     */
+    Instance(Shape shape, int res) {
+        this.shape = shape;
+        this.res = res;
+        this.mesh = MeshCache.get(shape, res);
+    }
+
+    /**
+     * Constructs an instance of a shape at its default resolution.
+     * 
+     * @param shape The shape.
+     * @return The new instance, untransformed.
+     */
+    static Instance of(Shape shape) {
+        return new Instance(shape, shape.res);
+    }
+
+    /**
+     * Returns the bounds of the instance in the scene, carried from the mesh's bounds
+     * through the instance's transformation.
+     * 
+     * @return The bounds of the placed instance.
+     */
+    Bounds bounds() {
+        return MeshCache.bounds(mesh).transform(transform);
+    }
+
+    @Override
+    public String toString() {
+        double[] m = transform.m;
+        return String.format("%s at (%.2f, %.2f, %.2f)", shape, m[3], m[7], m[11]);
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.Arrays;
+
+/**
+ * This class is a uniform screen-space grid over the points projected in the last frame,
+ * used to find the point under the mouse without testing every point.
+ * Points are appended while the frame is drawn, which only copies their coordinates.
+ * The first pick after a frame sorts them into square cells with a counting sort, so frames
+ * that are never clicked do not pay for the grid, and no arrays are allocated once they have
+ * grown to the size of the scene.
+ */
+class PickGrid {
+    // Cells are 1 << SHIFT pixels wide and high
+    private static final int SHIFT = 4;
+
+    // Screen coordinates and ids of the appended points, and the cell of each, -1 if off screen
+    private int[] px = new int[0], py = new int[0], pid = new int[0], cells = new int[0];
+    private int size;
+
+    // Size of the screen, and whether the points have been sorted into cells since the last frame
+    private int width, height;
+    private boolean built;
+
+    // Points sorted by cell, and the start of every cell in them
+    private int[] sorted = new int[0];
+    private int[] cellStart = new int[1];
+    private int cols, rows;
+
+    /**
+     * Removes all points, before a new frame is drawn.
+     * 
+     * @param width The width of the screen.
+     * @param height The height of the screen.
+     */
+    void clear(int width, int height) {
+        this.width = Math.max(width, 1);
+        this.height = Math.max(height, 1);
+        size = 0;
+        built = false;
+    }
+
+    /**
+     * Appends projected points with consecutive ids.
+     * 
+     * @param xs The screen x coordinates.
+     * @param ys The screen y coordinates.
+     * @param n The number of points to append.
+     * @param firstId The id of the first point.
+     */
+    void add(int[] xs, int[] ys, int n, int firstId) {
+        if (size + n > px.length) {
+            int grown = Math.max(size + n, px.length << 1);
+            px = Arrays.copyOf(px, grown);
+            py = Arrays.copyOf(py, grown);
+            pid = Arrays.copyOf(pid, grown);
+            cells = Arrays.copyOf(cells, grown);
+        }
+        System.arraycopy(xs, 0, px, size, n);
+        System.arraycopy(ys, 0, py, size, n);
+        for (int i = 0; i < n; i++) {
+            pid[size + i] = firstId + i;
+        }
+        size += n;
+    }
+
+    /**
+     * Appends projected points that all have the same id, such as the vertices of one instance.
+     * 
+     * @param xs The screen x coordinates.
+     * @param ys The screen y coordinates.
+     * @param n The number of points to append.
+     * @param id The id of every point.
+     */
+    void addGroup(int[] xs, int[] ys, int n, int id) {
+        add(xs, ys, n, id);
+        Arrays.fill(pid, size - n, size, id);
+    }
+
+    /**
+     * Sorts the appended points into cells. Points outside the screen are left out,
+     * they cannot be clicked.
+     */
+    private void build() {
+        cols = (width >> SHIFT) + 1;
+        rows = (height >> SHIFT) + 1;
+        if (cellStart.length < cols * rows + 1) {
+            cellStart = new int[cols * rows + 1];
+        } else {
+            Arrays.fill(cellStart, 0, cols * rows + 1, 0);
+        }
+        if (sorted.length < size) {
+            sorted = new int[px.length];
+        }
+        // Count the points of every cell, then turn the counts into start offsets
+        for (int i = 0; i < size; i++) {
+            int x = px[i], y = py[i];
+            cells[i] = x >= 0 && x < width && y >= 0 && y < height ? (y >> SHIFT) * cols + (x >> SHIFT) : -1;
+            cellStart[cells[i] + 1]++;
+        }
+        // Off-screen points were counted in cellStart[0], which is no cell's count
+        cellStart[0] = 0;
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        // Place the points, using the start offsets as cursors and shifting them back afterwards
+        for (int i = 0; i < size; i++) {
+            if (cells[i] >= 0) {
+                sorted[cellStart[cells[i]]++] = i;
+            }
+        }
+        for (int c = cols * rows; c > 0; c--) {
+            cellStart[c] = cellStart[c - 1];
+        }
+        cellStart[0] = 0;
+        built = true;
+    }
+
+    /**
+     * Finds the point closest to a screen position.
+     * 
+     * @param x The screen x coordinate.
+     * @param y The screen y coordinate.
+     * @param radius The largest distance in pixels at which a point is hit.
+     * @return The id of the closest point within radius, or -1 if there is none.
+     */
+    int pick(int x, int y, int radius) {
+        if (!built) {
+            build();
+        }
+        int minCol = Math.max((x - radius) >> SHIFT, 0), maxCol = Math.min((x + radius) >> SHIFT, cols - 1);
+        int minRow = Math.max((y - radius) >> SHIFT, 0), maxRow = Math.min((y + radius) >> SHIFT, rows - 1);
+        int best = -1;
+        long bestDistance = (long) radius * radius;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int c = row * cols + col;
+                for (int k = cellStart[c]; k < cellStart[c + 1]; k++) {
+                    int i = sorted[k];
+                    long dx = px[i] - x, dy = py[i] - y;
+                    long distance = dx * dx + dy * dy;
+                    if (distance <= bestDistance) {
+                        bestDistance = distance;
+                        best = pid[i];
+                    }
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,248 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class reads and writes scenes in a versioned binary format. All numbers are
+ * little-endian. A file is a header followed by blocks:
+ * <pre>
+ * header  int magic ("V3SN"), int version, int block count, int reserved
+ * block   int kind, int shape ordinal, int resolution, int reserved,
+ *         long point count, long payload bytes, then the payload
+ * </pre>
+ * Vector sets and shapes carry their points as three packed coordinate columns, all x,
+ * then all y, then all z, and instances carry the 16 entries of their matrix, row-major.
+ * Headers are multiples of 8 bytes, so every column is aligned for a double view.
+ * Files are written through a FileChannel into a temporary file that replaces the target
+ * when complete. They are read by memory-mapping every column and copying it into a
+ * VertexBuffer in one bulk transfer, without a V3 object or a parse per point.
+ * Readers skip block kinds they do not know, so later versions can add kinds.
+ */
+class SceneFile {
+    static final int MAGIC = 'V' | '3' << 8 | 'S' << 16 | 'N' << 24;
+    static final int VERSION = 1;
+
+    // Block kinds
+    static final int VECTORS = 0, SHAPE = 1, INSTANCE = 2;
+
+    private static final int HEADER_BYTES = 16, BLOCK_BYTES = 32;
+
+    // Largest instance resolution accepted from a file
+    private static final int MAX_RES = 1 << 12;
+
+    // Size of the buffer columns are written through
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    /**
+     * This class holds the contents of a scene file.
+     */
+    static final class Scene {
+        // Vector sets in file order
+        final List<VertexBuffer> vectors = new ArrayList<>();
+        // Shapes in file order, each a VertexBuffer or an Instance
+        final List<Object> shapes = new ArrayList<>();
+
+        /**
+         * Returns the number of points in all vector sets.
+         * 
+         * @return The number of points.
+         */
+        long vectorCount() {
+            long count = 0;
+            for (VertexBuffer set : vectors) {
+                count += set.size();
+            }
+            return count;
+        }
+    }
+
+    private SceneFile() {
+    }
+
+    /**
+     * Writes a scene to a file, replacing it only once the scene is completely written.
+     * 
+     * @param file The file to write.
+     * @param vectors The vector sets.
+     * @param shapes The shapes, each a VertexBuffer or an Instance.
+     * @throws IOException If writing fails.
+     */
+    static void write(Path file, List<VertexBuffer> vectors, List<?> shapes) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(vectors.size() + shapes.size()).putInt(0);
+            for (VertexBuffer set : vectors) {
+                writePoints(channel, buffer, VECTORS, set);
+            }
+            for (Object shape : shapes) {
+                if (shape instanceof Instance) {
+                    Instance instance = (Instance) shape;
+                    blockHeader(channel, buffer, INSTANCE, instance.shape.ordinal(), instance.res, 0, 16 * Double.BYTES);
+                    for (double entry : instance.transform.m) {
+                        put(channel, buffer, entry);
+                    }
+                } else {
+                    writePoints(channel, buffer, SHAPE, (VertexBuffer) shape);
+                }
+            }
+            flush(channel, buffer);
+            channel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a scene from a file.
+     * 
+     * @param file The file to read.
+     * @return The scene.
+     * @throws IOException If reading fails, or the file is not a scene of a known version.
+     */
+    static Scene read(Path file) throws IOException {
+        Scene scene = new Scene();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = map(channel, 0, HEADER_BYTES, size);
+            if (header.getInt() != MAGIC) {
+                throw new IOException(file.getFileName() + " is not a scene file");
+            }
+            int version = header.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException(file.getFileName() + " has unsupported scene version " + version);
+            }
+            int blocks = header.getInt();
+            long offset = HEADER_BYTES;
+            for (int b = 0; b < blocks; b++) {
+                ByteBuffer block = map(channel, offset, BLOCK_BYTES, size);
+                int kind = block.getInt(), shape = block.getInt(), res = block.getInt();
+                block.getInt();
+                long count = block.getLong(), bytes = block.getLong();
+                offset += BLOCK_BYTES;
+                if (bytes < 0 || offset + bytes > size) {
+                    throw new IOException(file.getFileName() + " is truncated");
+                }
+                switch (kind) {
+                    case VECTORS:
+                        scene.vectors.add(readPoints(channel, offset, count, bytes, size));
+                        break;
+                    case SHAPE:
+                        scene.shapes.add(readPoints(channel, offset, count, bytes, size));
+                        break;
+                    case INSTANCE:
+                        if (shape < 0 || shape >= Shape.values().length || res < 0 || res > MAX_RES
+                                || bytes != 16 * Double.BYTES) {
+                            throw new IOException(file.getFileName() + " has a malformed instance");
+                        }
+                        double[] m = new double[16];
+                        map(channel, offset, bytes, size).asDoubleBuffer().get(m);
+                        Instance instance = new Instance(Shape.values()[shape], res);
+                        instance.transform = new Matrix4(m);
+                        scene.shapes.add(instance);
+                        break;
+                    default:
+                        // Written by a later version, skip it
+                        break;
+                }
+                offset += bytes;
+            }
+        }
+        return scene;
+    }
+
+    /**
+     * Reads the three coordinate columns of a block into a new buffer.
+     * 
+     * @param channel The file.
+     * @param offset The position of the block's payload.
+     * @param count The number of points.
+     * @param bytes The size of the payload.
+     * @param size The size of the file.
+     * @return The points.
+     * @throws IOException If reading fails or the block is malformed.
+     */
+    private static VertexBuffer readPoints(FileChannel channel, long offset, long count, long bytes, long size)
+            throws IOException {
+        if (count < 0 || count > Integer.MAX_VALUE / Double.BYTES || bytes != count * 3 * Double.BYTES) {
+            throw new IOException("Malformed point block of " + count + " points");
+        }
+        VertexBuffer points = new VertexBuffer((int) count);
+        long column = count * Double.BYTES;
+        map(channel, offset, column, size).asDoubleBuffer().get(points.x);
+        map(channel, offset + column, column, size).asDoubleBuffer().get(points.y);
+        map(channel, offset + 2 * column, column, size).asDoubleBuffer().get(points.z);
+        return points;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long bytes, long size) throws IOException {
+        if (offset + bytes > size) {
+            throw new IOException("Scene file is truncated");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writePoints(FileChannel channel, ByteBuffer buffer, int kind, VertexBuffer points)
+            throws IOException {
+        int n = points.size();
+        blockHeader(channel, buffer, kind, -1, 0, n, 3L * n * Double.BYTES);
+        putColumn(channel, buffer, points.x);
+        putColumn(channel, buffer, points.y);
+        putColumn(channel, buffer, points.z);
+    }
+
+    private static void blockHeader(FileChannel channel, ByteBuffer buffer, int kind, int shape, int res,
+            long count, long bytes) throws IOException {
+        if (buffer.remaining() < BLOCK_BYTES) {
+            flush(channel, buffer);
+        }
+        buffer.putInt(kind).putInt(shape).putInt(res).putInt(0).putLong(count).putLong(bytes);
+    }
+
+    /**
+     * Writes a column through the buffer, a buffer's worth of doubles at a time.
+     * 
+     * @param channel The file.
+     * @param buffer The write buffer, flushed whenever it is full.
+     * @param column The coordinates.
+     * @throws IOException If writing fails.
+     */
+    private static void putColumn(FileChannel channel, ByteBuffer buffer, double[] column) throws IOException {
+        for (int i = 0; i < column.length;) {
+            if (buffer.remaining() < Double.BYTES) {
+                flush(channel, buffer);
+            }
+            DoubleBuffer doubles = buffer.asDoubleBuffer();
+            int n = Math.min(doubles.remaining(), column.length - i);
+            doubles.put(column, i, n);
+            buffer.position(buffer.position() + n * Double.BYTES);
+            i += n;
+        }
+    }
+
+    private static void put(FileChannel channel, ByteBuffer buffer, double value) throws IOException {
+        if (buffer.remaining() < Double.BYTES) {
+            flush(channel, buffer);
+        }
+        buffer.putDouble(value);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,54 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class implements VertexKernels with the incubating Vector API, processing
+ * as many vertices per instruction as the CPU's preferred vector width allows.
+ * It needs --add-modules jdk.incubator.vector both to compile and to run, and is only
+ * used when enabled with -Dgeoc.simd=true; otherwise VertexKernels uses ScalarKernels.
+ * Each lane performs the same operations as ScalarKernels, in the same order.
+ */
+class SimdKernels implements VertexKernels {
+    // Vector shape used for the coordinate columns
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // Vector shape for screen coordinates, half as wide, so it has as many lanes as SPECIES
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class,
+            VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+
+    // Scalar loops for the rotation tail that does not fill a whole vector
+    private final ScalarKernels scalar = new ScalarKernels();
+
+    @Override
+    public void rotate(Rotation r, VertexBuffer src, VertexBuffer dst, int from, int to) {
+        int i = from, bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, src.x, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, src.y, i);
+            DoubleVector z = DoubleVector.fromArray(SPECIES, src.z, i);
+            x.mul(r.m00).add(y.mul(r.m01)).add(z.mul(r.m02)).intoArray(dst.x, i);
+            x.mul(r.m10).add(y.mul(r.m11)).add(z.mul(r.m12)).intoArray(dst.y, i);
+            x.mul(r.m20).add(y.mul(r.m21)).add(z.mul(r.m22)).intoArray(dst.z, i);
+        }
+        scalar.rotate(r, src, dst, i, to);
+    }
+
+    @Override
+    public void project(VertexBuffer src, int from, int to, double cx, double cy, double near, double far, double zoom, int[] xs, int[] ys) {
+        int i = from, bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector y = DoubleVector.fromArray(SPECIES, src.y, i).add(far);
+            DoubleVector px = DoubleVector.fromArray(SPECIES, src.x, i).mul(near).div(y).mul(zoom).add(cx);
+            DoubleVector py = DoubleVector.fromArray(SPECIES, src.z, i).mul(near).div(y).mul(zoom).add(cy);
+            ((IntVector) px.convertShape(VectorOperators.D2I, INTS, 0)).intoArray(xs, i - from);
+            ((IntVector) py.convertShape(VectorOperators.D2I, INTS, 0)).intoArray(ys, i - from);
+        }
+        for (; i < to; i++) {
+            double y = src.y[i] + far;
+            xs[i - from] = (int) (cx + (src.x[i] * near / y) * zoom);
+            ys[i - from] = (int) (cy + (src.z[i] * near / y) * zoom);
+        }
+    }
+}
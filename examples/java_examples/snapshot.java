@@ -0,0 +1,47 @@
+/**
+ * This class is an immutable snapshot of everything the canvas draws in a frame: the vectors,
+ * shapes and lines rotated into camera space, the rotation they were rotated by, and what the
+ * shapes and instances need to be drawn. Demo rotates the next snapshot into back buffers and
+ * publishes it with a single volatile write; the renderer reads the published snapshot once per
+ * frame and draws only from it, so a frame never mixes geometry from two updates and never
+ * takes a lock. The buffers of a snapshot are not written while it is published or drawn.
+ */
+final class SceneSnapshot {
+    // Snapshot before anything has been published
+    static final SceneSnapshot EMPTY = new SceneSnapshot(null, null, null, null, null, null, null, null, null, null, 0);
+
+    // Camera rotation every buffer of the snapshot was rotated by
+    final Rotation camera;
+
+    // Vectors as transformed, for their labels, and rotated, or null
+    final VertexBuffer vectorData, vectors;
+
+    // Rotated shapes, their bounds in the scene, and the mesh each was created from, or null
+    final VertexBuffer[] shapes;
+    final Bounds[] shapeBounds;
+    final Mesh[] shapeMeshes;
+
+    // Instances and their transformations when the snapshot was taken, or null
+    final Instance[] instances;
+    final Matrix4[] transforms;
+
+    // Rotated axis and grid lines, and how many times lines had been rotated when they were
+    final VertexBuffer lines, gridLines;
+    final long lineGeneration;
+
+    SceneSnapshot(Rotation camera, VertexBuffer vectorData, VertexBuffer vectors, VertexBuffer[] shapes,
+            Bounds[] shapeBounds, Mesh[] shapeMeshes, Instance[] instances, Matrix4[] transforms,
+            VertexBuffer lines, VertexBuffer gridLines, long lineGeneration) {
+        this.camera = camera;
+        this.vectorData = vectorData;
+        this.vectors = vectors;
+        this.shapes = shapes;
+        this.shapeBounds = shapeBounds;
+        this.shapeMeshes = shapeMeshes;
+        this.instances = instances;
+        this.transforms = transforms;
+        this.lines = lines;
+        this.gridLines = gridLines;
+        this.lineGeneration = lineGeneration;
+    }
+}
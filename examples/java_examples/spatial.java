@@ -0,0 +1,593 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * This class is a point octree over 3D points identified by integer ids.
+ * It answers k-nearest, radius and box queries, and supports moving single points
+ * so that it can follow transformations without being rebuilt. A moved point that
+ * stays inside its leaf only has its coordinates updated.
+ * The root grows to enclose points inserted outside of it. Points with a non-finite
+ * coordinate, such as one scaled past the largest double, are left out of the octree.
+ */
+class Octree {
+    // Number of points a leaf holds before it is split
+    private static final int LEAF_SIZE = 16;
+
+    // Depth below which leaves are no longer split, so that duplicate points cannot split forever
+    private static final int MAX_DEPTH = 20;
+
+    // Ids of an empty leaf, whose array is only allocated when a point is added
+    private static final int[] NO_IDS = new int[0];
+
+    // Depths below the root whose octants are kept in the paths of a bulk build, three bits each
+    private static final int PATH_DEPTH = 10;
+
+    /**
+     * A cube of space, either a leaf holding point ids or an inner node with eight children.
+     */
+    private static final class Node {
+        final double cx, cy, cz, half;
+        final int depth;
+        Node[] children;
+        int[] ids = NO_IDS;
+        int count;
+
+        Node(double cx, double cy, double cz, double half, int depth) {
+            this.cx = cx;
+            this.cy = cy;
+            this.cz = cz;
+            this.half = half;
+            this.depth = depth;
+        }
+
+        boolean contains(double x, double y, double z) {
+            return Math.abs(x - cx) <= half && Math.abs(y - cy) <= half && Math.abs(z - cz) <= half;
+        }
+
+        int octant(double x, double y, double z) {
+            return (x >= cx ? 1 : 0) | (y >= cy ? 2 : 0) | (z >= cz ? 4 : 0);
+        }
+
+        Node child(int octant) {
+            double h = half / 2;
+            return new Node(cx + ((octant & 1) != 0 ? h : -h), cy + ((octant & 2) != 0 ? h : -h),
+                    cz + ((octant & 4) != 0 ? h : -h), h, depth + 1);
+        }
+
+        /**
+         * Squared distance from a point to the closest point of this cube.
+         */
+        double distance2(double x, double y, double z) {
+            double dx = Math.max(Math.abs(x - cx) - half, 0);
+            double dy = Math.max(Math.abs(y - cy) - half, 0);
+            double dz = Math.max(Math.abs(z - cz) - half, 0);
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    // Coordinates and leaf of every point, indexed by id
+    private double[] px = new double[0], py = new double[0], pz = new double[0];
+    private Node[] leaves = new Node[0];
+
+    /**
+     * Builds an octree over all points of a buffer, with the point indexes as ids.
+     * The path of every point from the root down is computed once, and the points are
+     * sorted by it into the octants of each node at once, instead of being inserted one at
+     * a time and moved again whenever a leaf splits.
+     * 
+     * @param points The points to index.
+     * @return The octree.
+     */
+    static Octree of(VertexBuffer points) {
+        Octree tree = new Octree();
+        int n = points.size();
+        int[] ids = new int[n];
+        int count = 0;
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            if (!finite(points.x[i], points.y[i], points.z[i])) {
+                continue;
+            }
+            ids[count++] = i;
+            minX = Math.min(minX, points.x[i]);
+            minY = Math.min(minY, points.y[i]);
+            minZ = Math.min(minZ, points.z[i]);
+            maxX = Math.max(maxX, points.x[i]);
+            maxY = Math.max(maxY, points.y[i]);
+            maxZ = Math.max(maxZ, points.z[i]);
+        }
+        tree.ensureCapacity(n);
+        if (count == 0) {
+            return tree;
+        }
+        System.arraycopy(points.x, 0, tree.px, 0, n);
+        System.arraycopy(points.y, 0, tree.py, 0, n);
+        System.arraycopy(points.z, 0, tree.pz, 0, n);
+        double half = Math.max(Math.max(maxX - minX, maxY - minY), Math.max(maxZ - minZ, 1e-9)) / 2;
+        tree.root = new Node((minX + maxX) / 2, (minY + maxY) / 2, (minZ + maxZ) / 2, half, 0);
+        int[] paths = new int[count];
+        for (int i = 0; i < count; i++) {
+            paths[i] = tree.path(ids[i]);
+        }
+        tree.build(tree.root, paths, ids, new int[count], new int[count], 0, count);
+        tree.size = count;
+        return tree;
+    }
+
+    /**
+     * Returns the number of points in the octree.
+     * 
+     * @return The number of points.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether a point is in the octree.
+     * 
+     * @param id The id of the point.
+     * @return True if the point was inserted and not removed.
+     */
+    boolean contains(int id) {
+        return id >= 0 && id < leaves.length && leaves[id] != null;
+    }
+
+    /**
+     * Inserts a point. An id already in the octree is moved instead. A point with a
+     * non-finite coordinate is left out, and removed if it was in the octree.
+     * 
+     * @param id The id of the point, a small non-negative integer.
+     * @param x The x coordinate.
+     * @param y The y coordinate.
+     * @param z The z coordinate.
+     */
+    void insert(int id, double x, double y, double z) {
+        if (!finite(x, y, z)) {
+            remove(id);
+            return;
+        }
+        if (contains(id)) {
+            move(id, x, y, z);
+            return;
+        }
+        ensureCapacity(id + 1);
+        px[id] = x;
+        py[id] = y;
+        pz[id] = z;
+        if (root == null) {
+            root = new Node(x, y, z, 1, 0);
+        }
+        while (!root.contains(x, y, z)) {
+            grow(x, y, z);
+        }
+        add(root, id);
+        size++;
+    }
+
+    /**
+     * Removes a point.
+     * 
+     * @param id The id of the point.
+     */
+    void remove(int id) {
+        if (!contains(id)) {
+            return;
+        }
+        Node leaf = leaves[id];
+        for (int i = 0; i < leaf.count; i++) {
+            if (leaf.ids[i] == id) {
+                leaf.ids[i] = leaf.ids[--leaf.count];
+                break;
+            }
+        }
+        leaves[id] = null;
+        size--;
+    }
+
+    /**
+     * Moves a point. If it stays inside its leaf only its coordinates change,
+     * otherwise it is reinserted.
+     * 
+     * @param id The id of the point.
+     * @param x The new x coordinate.
+     * @param y The new y coordinate.
+     * @param z The new z coordinate.
+     */
+    void move(int id, double x, double y, double z) {
+        if (contains(id) && leaves[id].contains(x, y, z)) {
+            px[id] = x;
+            py[id] = y;
+            pz[id] = z;
+        } else {
+            remove(id);
+            insert(id, x, y, z);
+        }
+    }
+
+    /**
+     * Finds the points closest to a position.
+     * 
+     * @param x The x coordinate of the position.
+     * @param y The y coordinate of the position.
+     * @param z The z coordinate of the position.
+     * @param k The number of points to find.
+     * @return The ids of at most k points, closest first.
+     */
+    int[] nearest(double x, double y, double z, int k) {
+        k = Math.min(k, size);
+        int[] ids = new int[k];
+        double[] d2 = new double[k];
+        Arrays.fill(d2, Double.POSITIVE_INFINITY);
+        if (k > 0) {
+            nearest(root, x, y, z, ids, d2);
+        }
+        return ids;
+    }
+
+    /**
+     * Finds the points within a distance of a position.
+     * 
+     * @param x The x coordinate of the position.
+     * @param y The y coordinate of the position.
+     * @param z The z coordinate of the position.
+     * @param r The distance.
+     * @return The ids of the points, in no particular order.
+     */
+    int[] radius(double x, double y, double z, double r) {
+        IntStream.Builder found = IntStream.builder();
+        if (root != null) {
+            radius(root, x, y, z, r * r, found);
+        }
+        return found.build().toArray();
+    }
+
+    /**
+     * Finds the points inside an axis-aligned box, bounds included.
+     * 
+     * @param minX The smallest x coordinate of the box.
+     * @param minY The smallest y coordinate of the box.
+     * @param minZ The smallest z coordinate of the box.
+     * @param maxX The largest x coordinate of the box.
+     * @param maxY The largest y coordinate of the box.
+     * @param maxZ The largest z coordinate of the box.
+     * @return The ids of the points, in no particular order.
+     */
+    int[] box(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        IntStream.Builder found = IntStream.builder();
+        if (root != null) {
+            box(root, minX, minY, minZ, maxX, maxY, maxZ, found);
+        }
+        return found.build().toArray();
+    }
+
+    private static boolean finite(double x, double y, double z) {
+        return Double.isFinite(x) && Double.isFinite(y) && Double.isFinite(z);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > leaves.length) {
+            int grown = Math.max(capacity, leaves.length << 1);
+            px = Arrays.copyOf(px, grown);
+            py = Arrays.copyOf(py, grown);
+            pz = Arrays.copyOf(pz, grown);
+            leaves = Arrays.copyOf(leaves, grown);
+        }
+    }
+
+    /**
+     * Doubles the root towards a point outside of it, the old root becoming one of its octants.
+     */
+    private void grow(double x, double y, double z) {
+        double h = root.half;
+        Node grown = new Node(root.cx + (x >= root.cx ? h : -h), root.cy + (y >= root.cy ? h : -h),
+                root.cz + (z >= root.cz ? h : -h), h * 2, root.depth - 1);
+        grown.children = new Node[8];
+        grown.ids = null;
+        int octant = grown.octant(root.cx, root.cy, root.cz);
+        for (int i = 0; i < 8; i++) {
+            grown.children[i] = i == octant ? root : grown.child(i);
+        }
+        root = grown;
+    }
+
+    /**
+     * Computes the octants a point falls in from the root down PATH_DEPTH depths, three bits
+     * per depth, the root's octant highest. The centers are computed as the nodes compute them.
+     */
+    private int path(int id) {
+        double x = px[id], y = py[id], z = pz[id];
+        double cx = root.cx, cy = root.cy, cz = root.cz, half = root.half;
+        int path = 0;
+        for (int depth = 0; depth < PATH_DEPTH; depth++) {
+            int ox = x >= cx ? 1 : 0, oy = y >= cy ? 1 : 0, oz = z >= cz ? 1 : 0;
+            path = path << 3 | oz << 2 | oy << 1 | ox;
+            // Moving by h times 1 or -1 is exact, and avoids a branch on every coordinate
+            double h = half / 2;
+            cx += h * (2 * ox - 1);
+            cy += h * (2 * oy - 1);
+            cz += h * (2 * oz - 1);
+            half = h;
+        }
+        return path;
+    }
+
+    /**
+     * Sorts the points ids[from, to) into a node by their paths, splitting it for as long as
+     * they do not fit in one leaf, like inserting them one at a time would. Below the depths
+     * of the paths, the points are compared with the centers of the nodes instead.
+     */
+    private void build(Node node, int[] paths, int[] ids, int[] pathScratch, int[] idScratch, int from, int to) {
+        int count = to - from;
+        if (count <= LEAF_SIZE || node.depth >= MAX_DEPTH) {
+            if (count > 0) {
+                node.ids = Arrays.copyOfRange(ids, from, to);
+            }
+            node.count = count;
+            for (int i = from; i < to; i++) {
+                leaves[ids[i]] = node;
+            }
+            return;
+        }
+        // Counting sort by the octant of this node's depth, through the scratch arrays
+        int depth = node.depth - root.depth;
+        if (depth >= PATH_DEPTH) {
+            for (int i = from; i < to; i++) {
+                int id = ids[i];
+                paths[i] = node.octant(px[id], py[id], pz[id]);
+            }
+        }
+        int shift = depth < PATH_DEPTH ? 3 * (PATH_DEPTH - 1 - depth) : 0;
+        int[] start = new int[9];
+        for (int i = from; i < to; i++) {
+            start[(paths[i] >>> shift & 7) + 1]++;
+        }
+        for (int k = 0; k < 8; k++) {
+            start[k + 1] += start[k];
+        }
+        int[] next = Arrays.copyOf(start, 8);
+        for (int i = from; i < to; i++) {
+            int j = from + next[paths[i] >>> shift & 7]++;
+            pathScratch[j] = paths[i];
+            idScratch[j] = ids[i];
+        }
+        System.arraycopy(pathScratch, from, paths, from, count);
+        System.arraycopy(idScratch, from, ids, from, count);
+        node.children = new Node[8];
+        node.ids = null;
+        for (int k = 0; k < 8; k++) {
+            node.children[k] = node.child(k);
+            build(node.children[k], paths, ids, pathScratch, idScratch, from + start[k], from + start[k + 1]);
+        }
+    }
+
+    private void add(Node node, int id) {
+        double x = px[id], y = py[id], z = pz[id];
+        while (node.children != null) {
+            node = node.children[node.octant(x, y, z)];
+        }
+        if (node.count == node.ids.length) {
+            if (node.count >= LEAF_SIZE && node.depth < MAX_DEPTH) {
+                split(node);
+                add(node, id);
+                return;
+            }
+            node.ids = Arrays.copyOf(node.ids, Math.max(node.count << 1, 4));
+        }
+        node.ids[node.count++] = id;
+        leaves[id] = node;
+    }
+
+    private void split(Node node) {
+        node.children = new Node[8];
+        for (int i = 0; i < 8; i++) {
+            node.children[i] = node.child(i);
+        }
+        int[] ids = node.ids;
+        int count = node.count;
+        node.ids = null;
+        node.count = 0;
+        for (int i = 0; i < count; i++) {
+            add(node, ids[i]);
+        }
+    }
+
+    private void nearest(Node node, double x, double y, double z, int[] ids, double[] d2) {
+        int k = ids.length;
+        if (node.distance2(x, y, z) > d2[k - 1]) {
+            return;
+        }
+        if (node.children == null) {
+            for (int i = 0; i < node.count; i++) {
+                int id = node.ids[i];
+                double dx = px[id] - x, dy = py[id] - y, dz = pz[id] - z;
+                double d = dx * dx + dy * dy + dz * dz;
+                if (d <= d2[k - 1]) {
+                    // Insert into the sorted candidates, dropping the farthest
+                    int j = k - 1;
+                    for (; j > 0 && d2[j - 1] > d; j--) {
+                        d2[j] = d2[j - 1];
+                        ids[j] = ids[j - 1];
+                    }
+                    d2[j] = d;
+                    ids[j] = id;
+                }
+            }
+            return;
+        }
+        // Visit the octant holding the position first, it most likely has the closest points
+        int first = node.octant(x, y, z);
+        nearest(node.children[first], x, y, z, ids, d2);
+        for (int i = 0; i < 8; i++) {
+            if (i != first) {
+                nearest(node.children[i], x, y, z, ids, d2);
+            }
+        }
+    }
+
+    private void radius(Node node, double x, double y, double z, double r2, IntStream.Builder found) {
+        if (node.distance2(x, y, z) > r2) {
+            return;
+        }
+        if (node.children == null) {
+            for (int i = 0; i < node.count; i++) {
+                int id = node.ids[i];
+                double dx = px[id] - x, dy = py[id] - y, dz = pz[id] - z;
+                if (dx * dx + dy * dy + dz * dz <= r2) {
+                    found.add(id);
+                }
+            }
+            return;
+        }
+        for (Node child : node.children) {
+            radius(child, x, y, z, r2, found);
+        }
+    }
+
+    private void box(Node node, double minX, double minY, double minZ, double maxX, double maxY, double maxZ,
+            IntStream.Builder found) {
+        if (node.cx + node.half < minX || node.cx - node.half > maxX
+                || node.cy + node.half < minY || node.cy - node.half > maxY
+                || node.cz + node.half < minZ || node.cz - node.half > maxZ) {
+            return;
+        }
+        if (node.children == null) {
+            for (int i = 0; i < node.count; i++) {
+                int id = node.ids[i];
+                if (px[id] >= minX && px[id] <= maxX && py[id] >= minY && py[id] <= maxY
+                        && pz[id] >= minZ && pz[id] <= maxZ) {
+                    found.add(id);
+                }
+            }
+            return;
+        }
+        for (Node child : node.children) {
+            box(child, minX, minY, minZ, maxX, maxY, maxZ, found);
+        }
+    }
+}
+
+/**
+ * This class indexes the vectors and shapes of the canvas in two octrees.
+ * Vector ids are indexes into vectorData; shape vertex ids number the vertices of all
+ * shapes one after the other, and shapeOf/vertexOf turn them back into a shape and a vertex.
+ * The index follows the committed geometry: setVectors and setShapes rebuild it, and
+ * committing a transformed buffer moves only that buffer's points.
+ */
+class SceneIndex {
+    private Octree vectors = new Octree(), shapes = new Octree();
+    private VertexBuffer vectorData;
+    private VertexBuffer[] shapeData = new VertexBuffer[0];
+
+    // Id of the first vertex of every shape, plus the total count at the end
+    private int[] offsets = { 0 };
+
+    /**
+     * Rebuilds the vector octree.
+     * 
+     * @param data The packed vectors of the canvas.
+     */
+    void setVectors(VertexBuffer data) {
+        vectorData = data;
+        vectors = data == null ? new Octree() : Octree.of(data);
+    }
+
+    /**
+     * Replaces the vector octree with one already built over the vectors.
+     * 
+     * @param data The packed vectors of the canvas.
+     * @param tree An octree over data, with indexes into it as ids.
+     */
+    void setVectors(VertexBuffer data, Octree tree) {
+        vectorData = data;
+        vectors = tree;
+    }
+
+    /**
+     * Rebuilds the shape octree.
+     * 
+     * @param data The packed shapes of the canvas.
+     */
+    void setShapes(VertexBuffer[] data) {
+        shapeData = data == null ? new VertexBuffer[0] : data;
+        offsets = new int[shapeData.length + 1];
+        for (int i = 0; i < shapeData.length; i++) {
+            offsets[i + 1] = offsets[i] + shapeData[i].size();
+        }
+        shapes = new Octree();
+        for (int i = 0; i < shapeData.length; i++) {
+            update(shapeData[i]);
+        }
+    }
+
+    /**
+     * Moves the points of a buffer to their current positions.
+     * 
+     * @param buffer The vector buffer or one of the shape buffers.
+     */
+    void update(VertexBuffer buffer) {
+        if (buffer == vectorData) {
+            for (int i = 0; i < buffer.size(); i++) {
+                vectors.move(i, buffer.x[i], buffer.y[i], buffer.z[i]);
+            }
+            return;
+        }
+        for (int s = 0; s < shapeData.length; s++) {
+            if (shapeData[s] == buffer) {
+                for (int i = 0; i < buffer.size(); i++) {
+                    shapes.move(offsets[s] + i, buffer.x[i], buffer.y[i], buffer.z[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the octree over the vectors, with indexes into vectorData as ids.
+     * 
+     * @return The vector octree.
+     */
+    Octree vectors() {
+        return vectors;
+    }
+
+    /**
+     * Returns the octree over the vertices of all shapes.
+     * 
+     * @return The shape octree.
+     */
+    Octree shapes() {
+        return shapes;
+    }
+
+    /**
+     * Returns the shape a shape vertex id belongs to.
+     * 
+     * @param id A shape vertex id.
+     * @return The index of the shape.
+     */
+    int shapeOf(int id) {
+        int i = Arrays.binarySearch(offsets, id);
+        // Empty shapes share their offset with the next shape, use the last one
+        if (i >= 0) {
+            while (i + 1 < offsets.length - 1 && offsets[i + 1] == id) {
+                i++;
+            }
+            return i;
+        }
+        return -i - 2;
+    }
+
+    /**
+     * Returns the vertex of its shape a shape vertex id stands for.
+     * 
+     * @param id A shape vertex id.
+     * @return The index of the vertex in its shape.
+     */
+    int vertexOf(int id) {
+        return id - offsets[shapeOf(id)];
+    }
+}
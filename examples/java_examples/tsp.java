@@ -0,0 +1,560 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class finds short closed tours through a set of points (the Travelling Salesman Problem).
+ * Small instances are solved exactly with the Held-Karp dynamic program; larger ones start
+ * from a nearest-neighbour tour and are improved by 2-opt and Or-opt local search until no
+ * move helps or the time budget runs out.
+ * Tours are arrays of point indexes, starting at point 0; the tour closes back to its start.
+ */
+class TspSolver {
+    // Largest number of points solved exactly, Held-Karp needs O(2^n * n) memory
+    static final int EXACT_LIMIT = 16;
+
+    // Smallest improvement accepted by the local search, to avoid cycling on rounding errors
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Finds a short tour through the points.
+     * 
+     * @param points The points to visit.
+     * @param budgetMillis Time allowed for improving heuristic tours, in milliseconds.
+     * @return The tour, as point indexes.
+     */
+    static int[] solve(VertexBuffer points, long budgetMillis) {
+        int n = points.size();
+        if (n <= 3) {
+            int[] tour = new int[n];
+            for (int i = 0; i < n; i++) {
+                tour[i] = i;
+            }
+            return tour;
+        }
+        if (n <= EXACT_LIMIT) {
+            return heldKarp(points);
+        }
+        int[] tour = nearestNeighbour(points);
+        improve(points, tour, System.nanoTime() + budgetMillis * 1_000_000);
+        return tour;
+    }
+
+    /**
+     * Computes the euclidean distance between two points.
+     * 
+     * @param p The points.
+     * @param a The index of the first point.
+     * @param b The index of the second point.
+     * @return The distance between the points.
+     */
+    static double distance(VertexBuffer p, int a, int b) {
+        double dx = p.x[a] - p.x[b], dy = p.y[a] - p.y[b], dz = p.z[a] - p.z[b];
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Computes the length of a closed tour.
+     * 
+     * @param p The points.
+     * @param tour The tour, as point indexes.
+     * @return The total distance, including the way back to the start.
+     */
+    static double length(VertexBuffer p, int[] tour) {
+        double total = 0;
+        for (int i = 0; i < tour.length; i++) {
+            total += distance(p, tour[i], tour[(i + 1) % tour.length]);
+        }
+        return total;
+    }
+
+    /**
+     * Solves the tour exactly with the Held-Karp dynamic program.
+     * cost[S][j] is the shortest path from point 0 through the set S of other points, ending at j.
+     * 
+     * @param p The points, at most EXACT_LIMIT of them.
+     * @return The optimal tour.
+     */
+    static int[] heldKarp(VertexBuffer p) {
+        int n = p.size(), m = n - 1, full = (1 << m) - 1;
+        double[][] d = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                d[i][j] = d[j][i] = distance(p, i, j);
+            }
+        }
+
+        // Point j + 1 is bit j of the set, point 0 is the fixed start
+        double[][] cost = new double[1 << m][m];
+        byte[][] parent = new byte[1 << m][m];
+        for (int set = 1; set <= full; set++) {
+            for (int j = 0; j < m; j++) {
+                if ((set & 1 << j) == 0) {
+                    continue;
+                }
+                int rest = set & ~(1 << j);
+                if (rest == 0) {
+                    cost[set][j] = d[0][j + 1];
+                    parent[set][j] = -1;
+                    continue;
+                }
+                double best = Double.MAX_VALUE;
+                for (int k = 0; k < m; k++) {
+                    if ((rest & 1 << k) != 0 && cost[rest][k] + d[k + 1][j + 1] < best) {
+                        best = cost[rest][k] + d[k + 1][j + 1];
+                        parent[set][j] = (byte) k;
+                    }
+                }
+                cost[set][j] = best;
+            }
+        }
+
+        // Close the tour and walk the parents back from the best last point
+        int last = 0;
+        for (int j = 1; j < m; j++) {
+            if (cost[full][j] + d[j + 1][0] < cost[full][last] + d[last + 1][0]) {
+                last = j;
+            }
+        }
+        int[] tour = new int[n];
+        for (int i = n - 1, set = full; i > 0; i--) {
+            tour[i] = last + 1;
+            int prev = parent[set][last];
+            set &= ~(1 << last);
+            last = prev;
+        }
+        return tour;
+    }
+
+    /**
+     * Builds a tour by always moving to the closest point not yet visited.
+     * 
+     * @param p The points.
+     * @return The nearest-neighbour tour, starting at the first finite point.
+     */
+    static int[] nearestNeighbour(VertexBuffer p) {
+        int n = p.size();
+        int[] tour = new int[n];
+        // Visited points are removed from the octree, so the nearest point left is the next one
+        Octree unvisited = Octree.of(p);
+        // The octree leaves out points that are not finite, they end the tour in index order
+        int end = n;
+        for (int i = n - 1; i >= 0; i--) {
+            if (!unvisited.contains(i)) {
+                tour[--end] = i;
+            }
+        }
+        if (end > 0) {
+            int start = 0;
+            while (!unvisited.contains(start)) {
+                start++;
+            }
+            tour[0] = start;
+            unvisited.remove(start);
+        }
+        for (int i = 1; i < end; i++) {
+            int from = tour[i - 1];
+            tour[i] = unvisited.nearest(p.x[from], p.y[from], p.z[from], 1)[0];
+            unvisited.remove(tour[i]);
+        }
+        return tour;
+    }
+
+    static void improve(VertexBuffer p, int[] tour, long deadline) {
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = twoOpt(p, tour, deadline);
+            improved |= orOpt(p, tour, deadline);
+        }
+    }
+
+    /**
+     * Runs one pass of 2-opt: replaces edges (a, b) and (c, d) by (a, c) and (b, d)
+     * whenever that shortens the tour, reversing the path between them.
+     * 
+     * @return True if the tour was improved.
+     */
+    private static boolean twoOpt(VertexBuffer p, int[] tour, long deadline) {
+        int n = tour.length;
+        boolean improved = false;
+        for (int i = 0; i < n - 2 && System.nanoTime() < deadline; i++) {
+            int a = tour[i], b = tour[i + 1];
+            double ab = distance(p, a, b);
+            for (int j = i + 2; j < n; j++) {
+                int c = tour[j], d = tour[(j + 1) % n];
+                if (d == a) {
+                    continue;
+                }
+                double delta = distance(p, a, c) + distance(p, b, d) - ab - distance(p, c, d);
+                if (delta < -EPSILON) {
+                    reverse(tour, i + 1, j);
+                    b = tour[i + 1];
+                    ab = distance(p, a, b);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Runs one pass of Or-opt: moves segments of one to three consecutive points,
+     * possibly reversed, to the position in the tour where they cost the least.
+     * 
+     * @return True if the tour was improved.
+     */
+    private static boolean orOpt(VertexBuffer p, int[] tour, long deadline) {
+        int n = tour.length;
+        boolean improved = false;
+        for (int len = 1; len <= 3; len++) {
+            for (int i = 1; i + len <= n && System.nanoTime() < deadline; i++) {
+                int prev = tour[i - 1], first = tour[i], last = tour[i + len - 1], next = tour[(i + len) % n];
+                double gain = distance(p, prev, first) + distance(p, last, next) - distance(p, prev, next);
+                int bestJ = -1;
+                boolean bestReversed = false;
+                double bestCost = gain - EPSILON;
+                // Try inserting between tour[j] and tour[j + 1], outside the segment
+                for (int j = 0; j < n; j++) {
+                    if (j >= i - 1 && j < i + len) {
+                        continue;
+                    }
+                    int u = tour[j], v = tour[(j + 1) % n];
+                    double uv = distance(p, u, v);
+                    double forward = distance(p, u, first) + distance(p, last, v) - uv;
+                    double backward = distance(p, u, last) + distance(p, first, v) - uv;
+                    if (forward < bestCost) {
+                        bestCost = forward;
+                        bestJ = j;
+                        bestReversed = false;
+                    }
+                    if (backward < bestCost) {
+                        bestCost = backward;
+                        bestJ = j;
+                        bestReversed = true;
+                    }
+                }
+                if (bestJ >= 0) {
+                    move(tour, i, len, bestJ, bestReversed);
+                    improved = true;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Reverses tour[from..to], both inclusive.
+     */
+    private static void reverse(int[] tour, int from, int to) {
+        for (; from < to; from++, to--) {
+            int temp = tour[from];
+            tour[from] = tour[to];
+            tour[to] = temp;
+        }
+    }
+
+    /**
+     * Moves the segment tour[i..i + len) to between tour[j] and tour[j + 1],
+     * keeping point 0 first.
+     */
+    private static void move(int[] tour, int i, int len, int j, boolean reversed) {
+        int n = tour.length;
+        int[] segment = new int[len], result = new int[n];
+        for (int k = 0; k < len; k++) {
+            segment[k] = tour[reversed ? i + len - 1 - k : i + k];
+        }
+        int r = 0;
+        for (int k = 0; k < n; k++) {
+            if (k >= i && k < i + len) {
+                continue;
+            }
+            result[r++] = tour[k];
+            if (k == j) {
+                for (int s : segment) {
+                    result[r++] = s;
+                }
+            }
+        }
+        System.arraycopy(result, 0, tour, 0, n);
+    }
+}
+
+/**
+ * This class solves the Travelling Salesman Problem exactly by branch and bound, for up to
+ * LIMIT points. Partial tours are pruned when their length plus a 1-tree style lower bound for
+ * the rest of the tour (a minimum spanning tree over the points still to visit, joined to both
+ * ends of the path) cannot beat the best tour found so far. The first levels of the search tree are spread across the common fork-join pool.
+ * The search starts from a TspSolver tour, reports every better tour as it is found, and can
+ * be cancelled at any time, leaving the best tour found so far.
+ */
+class TspBranchAndBound {
+    // Largest number of points accepted, the visited set is a bit mask
+    static final int LIMIT = 25;
+
+    // Depth of the search tree above which subtrees are forked as separate tasks
+    private static final int SPLIT_DEPTH = 3;
+
+    // Time in milliseconds spent on the heuristic tour the search starts from
+    private static final long SEED_BUDGET = 50;
+
+    /**
+     * This interface receives the tours found during the search.
+     */
+    interface Progress {
+        /**
+         * Called, from any thread, whenever a shorter tour has been found.
+         * 
+         * @param tour The new best tour, as point indexes.
+         * @param length The length of the tour.
+         */
+        void improved(int[] tour, double length);
+    }
+
+    private final VertexBuffer points;
+    private final int n;
+    private final double[][] d;
+    private final Progress progress;
+    private final LongAdder nodes = new LongAdder();
+    private volatile boolean cancelled;
+    private volatile double bestLength = Double.MAX_VALUE;
+    private int[] bestTour;
+
+    /**
+     * Constructs a solver for the given points.
+     * 
+     * @param p The points to visit, at most LIMIT of them.
+     * @param progress Receives every improved tour, or null.
+     */
+    TspBranchAndBound(VertexBuffer p, Progress progress) {
+        if (p.size() > LIMIT) {
+            throw new IllegalArgumentException("Exact TSP supports up to " + LIMIT + " points, got " + p.size());
+        }
+        n = p.size();
+        d = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                d[i][j] = d[j][i] = TspSolver.distance(p, i, j);
+            }
+        }
+        this.points = p;
+        this.progress = progress;
+    }
+
+    /**
+     * Runs the search on the common fork-join pool and blocks until it completes or is cancelled.
+     * The best tour starts out as a short TspSolver run, so pruning is effective from the start.
+     * 
+     * @return The optimal tour, or the best one found before cancellation.
+     */
+    int[] solve() {
+        if (n > 0) {
+            int[] start = TspSolver.solve(points, SEED_BUDGET);
+            offer(start, TspSolver.length(points, start));
+        }
+        if (n > 3) {
+            int[] path = new int[n];
+            ForkJoinPool.commonPool().invoke(new Search(path, 1, 1L, 0));
+        }
+        return best();
+    }
+
+    /**
+     * Stops the search.
+     */
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns whether the search was cancelled.
+     * 
+     * @return True if cancel was called.
+     */
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the number of search tree nodes explored so far.
+     * 
+     * @return The number of nodes.
+     */
+    long nodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * Returns the length of the best tour found so far.
+     * 
+     * @return The length of the best tour.
+     */
+    double bestLength() {
+        return bestLength;
+    }
+
+    /**
+     * Returns a copy of the best tour found so far.
+     * 
+     * @return The best tour.
+     */
+    synchronized int[] best() {
+        return bestTour == null ? new int[0] : bestTour.clone();
+    }
+
+    /**
+     * Records a tour if it is shorter than the best one, and reports it.
+     */
+    private void offer(int[] tour, double length) {
+        int[] copy;
+        synchronized (this) {
+            if (length >= bestLength) {
+                return;
+            }
+            bestLength = length;
+            bestTour = tour.clone();
+            copy = bestTour.clone();
+        }
+        if (progress != null) {
+            progress.improved(copy, length);
+        }
+    }
+
+    /**
+     * Computes a lower bound for the rest of a tour: the rest is a path from the last point
+     * through every point not visited yet and back to the start, so it is at least a minimum
+     * spanning tree of the unvisited points plus the shortest edges joining them to the last
+     * point and to the start.
+     */
+    private double lowerBound(int last, long visited, Scratch scratch) {
+        int[] points = scratch.points;
+        double[] key = scratch.key;
+        boolean[] inTree = scratch.inTree;
+        int k = 0;
+        double toLast = Double.MAX_VALUE, toStart = Double.MAX_VALUE;
+        for (int i = 1; i < n; i++) {
+            if ((visited & 1L << i) == 0) {
+                points[k++] = i;
+                toLast = Math.min(toLast, d[last][i]);
+                toStart = Math.min(toStart, d[i][0]);
+            }
+        }
+        if (k == 0) {
+            return d[last][0];
+        }
+        // Prim's algorithm over the k unvisited points
+        Arrays.fill(key, 0, k, Double.MAX_VALUE);
+        Arrays.fill(inTree, 0, k, false);
+        key[0] = 0;
+        double total = toLast + toStart;
+        for (int step = 0; step < k; step++) {
+            int u = -1;
+            for (int i = 0; i < k; i++) {
+                if (!inTree[i] && (u < 0 || key[i] < key[u])) {
+                    u = i;
+                }
+            }
+            inTree[u] = true;
+            total += key[u];
+            for (int i = 0; i < k; i++) {
+                if (!inTree[i] && d[points[u]][points[i]] < key[i]) {
+                    key[i] = d[points[u]][points[i]];
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Working arrays of the lower bound, one set per task so the search does not allocate them per node.
+     */
+    private class Scratch {
+        final int[] points = new int[n];
+        final double[] key = new double[n];
+        final boolean[] inTree = new boolean[n];
+    }
+
+    /**
+     * Returns the points not visited yet, closest to the last point first.
+     */
+    private int[] candidates(int last, long visited, int depth) {
+        int[] next = new int[n - depth];
+        int k = 0;
+        for (int i = 1; i < n; i++) {
+            if ((visited & 1L << i) == 0) {
+                next[k++] = i;
+            }
+        }
+        // Insertion sort, there are at most LIMIT candidates
+        for (int i = 1; i < k; i++) {
+            int c = next[i], j = i - 1;
+            for (; j >= 0 && d[last][next[j]] > d[last][c]; j--) {
+                next[j + 1] = next[j];
+            }
+            next[j + 1] = c;
+        }
+        return next;
+    }
+
+    /**
+     * Fork-join task exploring the subtree below a partial path.
+     */
+    private class Search extends RecursiveAction {
+        private final int[] path;
+        private final int depth;
+        private final long visited;
+        private final double length;
+        private final Scratch scratch = new Scratch();
+
+        Search(int[] path, int depth, long visited, double length) {
+            this.path = path;
+            this.depth = depth;
+            this.visited = visited;
+            this.length = length;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth > SPLIT_DEPTH) {
+                search(path, depth, visited, length);
+                return;
+            }
+            nodes.increment();
+            int last = path[depth - 1];
+            List<Search> children = new ArrayList<>();
+            for (int next : candidates(last, visited, depth)) {
+                double extended = length + d[last][next];
+                if (extended + lowerBound(next, visited | 1L << next, scratch) < bestLength) {
+                    int[] child = path.clone();
+                    child[depth] = next;
+                    children.add(new Search(child, depth + 1, visited | 1L << next, extended));
+                }
+            }
+            invokeAll(children);
+        }
+
+        /**
+         * Depth-first search below a partial path on the current thread.
+         */
+        private void search(int[] path, int depth, long visited, double length) {
+            if (cancelled) {
+                return;
+            }
+            nodes.increment();
+            int last = path[depth - 1];
+            if (depth == n) {
+                offer(path, length + d[last][0]);
+                return;
+            }
+            for (int next : candidates(last, visited, depth)) {
+                double extended = length + d[last][next];
+                if (extended + lowerBound(next, visited | 1L << next, scratch) < bestLength) {
+                    path[depth] = next;
+                    search(path, depth + 1, visited | 1L << next, extended);
+                }
+            }
+        }
+    }
+}